@@ -0,0 +1,78 @@
+"""Compile app_risk_profiles.csv into the binary registry read by AppRiskRegistry.
+
+Usage: python build_risk_registry.py [csv] [output]
+
+Layout (big-endian, matching java.io.DataInputStream):
+    int    magic 'NPRR'
+    short  version
+    int    string count, then each string as modified UTF-8 (writeUTF)
+    int    entry count, then per entry:
+           UTF package, byte category, short base risk x 1000,
+           short concern string index, byte factor count, short factor string index...
+
+Concern and factor strings are pooled, so thousands of entries sharing a handful of
+descriptions stay small.
+"""
+import csv
+import os
+import struct
+import sys
+
+MAGIC = 0x4E505252
+VERSION = 1
+
+HERE = os.path.dirname(os.path.abspath(__file__))
+DEFAULT_CSV = os.path.join(HERE, "app_risk_profiles.csv")
+DEFAULT_OUT = os.path.join(HERE, "..", "src", "main", "assets", "app_risk_profiles.bin")
+
+
+def write_utf(out, text):
+    data = text.encode("utf-8")
+    out += struct.pack(">H", len(data)) + data
+
+
+def build(csv_path, out_path):
+    strings, string_index, entries = [], {}, []
+
+    def intern(text):
+        if text not in string_index:
+            string_index[text] = len(strings)
+            strings.append(text)
+        return string_index[text]
+
+    with open(csv_path, newline="", encoding="utf-8") as f:
+        for row in csv.DictReader(f):
+            package = row["package"].strip()
+            category = int(row["category"])
+            base_risk = float(row["base_risk"])
+            if not 0 <= category <= 9:
+                raise ValueError(f"{package}: category {category} out of range")
+            if not 0.0 <= base_risk <= 1.0:
+                raise ValueError(f"{package}: base_risk {base_risk} out of range")
+            factors = [s.strip() for s in row["risk_factors"].split("|") if s.strip()]
+            entries.append((package, category, round(base_risk * 1000),
+                            intern(row["primary_concern"].strip()),
+                            [intern(s) for s in factors]))
+
+    if len({e[0] for e in entries}) != len(entries):
+        raise ValueError("duplicate package names in " + csv_path)
+
+    out = bytearray(struct.pack(">IH", MAGIC, VERSION))
+    out += struct.pack(">I", len(strings))
+    for s in strings:
+        write_utf(out, s)
+    out += struct.pack(">I", len(entries))
+    for package, category, risk, concern, factors in entries:
+        write_utf(out, package)
+        out += struct.pack(">bhhb", category, risk, concern, len(factors))
+        for factor in factors:
+            out += struct.pack(">h", factor)
+
+    with open(out_path, "wb") as f:
+        f.write(out)
+    print(f"Wrote {len(entries)} profiles, {len(strings)} strings, {len(out)} bytes to {out_path}")
+
+
+if __name__ == "__main__":
+    build(sys.argv[1] if len(sys.argv) > 1 else DEFAULT_CSV,
+          sys.argv[2] if len(sys.argv) > 2 else DEFAULT_OUT)
@@ -14,6 +14,7 @@ import tensorflow as tf
 from tensorflow.keras.layers import Dense, Dropout, Input
 from tensorflow.keras.models import Model
 import joblib
+import json
 import os
 
 class DigitalWellnessML:
@@ -279,6 +280,13 @@ class DigitalWellnessML:
         
         # Save scaler
         joblib.dump(self.scaler, 'feature_scaler.pkl')
+        # Same statistics for the app's FeatureEncoder, in feature column order
+        with open('feature_scaler.json', 'w') as f:
+            json.dump({
+                'features': list(features.columns),
+                'mean': self.scaler.mean_.tolist(),
+                'scale': self.scaler.scale_.tolist(),
+            }, f, indent=2)
         
         return dopamine_model, addiction_model
     
@@ -338,7 +346,8 @@ def main():
     print("  - dopamine_model.tflite")
     print("  - addiction_model.tflite")
     print("  - feature_scaler.pkl")
-    print("\n📱 Copy .tflite files to Android app's assets/ folder")
+    print("  - feature_scaler.json")
+    print("\n📱 Copy the .tflite files and feature_scaler.json to Android app's assets/ folder")
 
 if __name__ == "__main__":
     main()
\ No newline at end of file
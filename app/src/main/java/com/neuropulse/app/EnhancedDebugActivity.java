@@ -11,7 +11,9 @@ import com.neuropulse.app.adapters.EnhancedDebugAdapter;
 import com.neuropulse.app.database.AppDatabase;
 import com.neuropulse.app.database.EnhancedSessionData;
 import com.neuropulse.app.features.EnhancedFeatureExtractor;
+import com.neuropulse.app.features.SpikeDetector;
 import com.neuropulse.app.ml.AddictionPredictor;
+import com.neuropulse.app.ml.RuleEngine;
 import java.util.UUID;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -64,7 +66,7 @@ public class EnhancedDebugActivity extends AppCompatActivity {
         recyclerView.setAdapter(debugAdapter);
 
         featureExtractor = new EnhancedFeatureExtractor(this);
-        predictor = new AddictionPredictor(this, AddictionPredictor.Mode.STANDARD);
+        predictor = AddictionPredictor.getInstance(this);
     }
 
     private void startRealTimeMonitoring() {
@@ -104,9 +106,8 @@ public class EnhancedDebugActivity extends AppCompatActivity {
                     sessionData.appName = currentAssessment.appName;
                     sessionData.sessionDuration = currentTime - sessionStartTime;
                     sessionData.appCategory = 0; // Will be updated by real-time detector
-                    sessionData.dopamineSpikeFlag = currentAssessment.addictionRisk > 0.6f ? 1 : 0;
-                    sessionData.addictionFlag = currentAssessment.riskLevel.equals("HIGH") ? 2 :
-                            currentAssessment.riskLevel.equals("MEDIUM") ? 1 : 0;
+                    sessionData.dopamineSpikeFlag = SpikeDetector.getInstance().hasSpikeSince(sessionStartTime) ? 1 : 0;
+                    sessionData.addictionFlag = RuleEngine.getInstance(this).evaluate(sessionData).addictionLevel;
                     sessionData.timestamp = currentTime;
                 }
 
@@ -243,5 +244,8 @@ public class EnhancedDebugActivity extends AppCompatActivity {
         if (executorService != null && !executorService.isShutdown()) {
             executorService.shutdown();
         }
+        if (featureExtractor != null) {
+            featureExtractor.close();
+        }
     }
 }
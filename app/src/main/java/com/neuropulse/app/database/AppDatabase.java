@@ -13,7 +13,7 @@ import net.sqlcipher.database.SupportFactory;
 
 @Database(
         entities = {EnhancedSessionData.class},
-        version = 2,
+        version = 3,
         exportSchema = true
 )
 public abstract class AppDatabase extends RoomDatabase {
@@ -44,7 +44,7 @@ public abstract class AppDatabase extends RoomDatabase {
                         DATABASE_NAME
                 )
                 .openHelperFactory(factory)
-                .addMigrations(MIGRATION_1_2)
+                .addMigrations(MIGRATION_1_2, MIGRATION_2_3)
                 .addCallback(new DatabaseCallback())
                 .setJournalMode(RoomDatabase.JournalMode.WRITE_AHEAD_LOGGING)
                 .fallbackToDestructiveMigration() // For development only
@@ -79,6 +79,20 @@ public abstract class AppDatabase extends RoomDatabase {
         }
     };
 
+    // Retention moves to RetentionWorker; the trigger made every insert pay for a delete scan
+    private static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            try {
+                database.execSQL("DROP TRIGGER IF EXISTS cleanup_old_data");
+                Log.i(TAG, "Migration 2->3 completed successfully");
+            } catch (Exception e) {
+                Log.e(TAG, "Migration failed", e);
+                throw e;
+            }
+        }
+    };
+
     private static class DatabaseCallback extends RoomDatabase.Callback {
         @Override
         public void onCreate(SupportSQLiteDatabase db) {
@@ -152,4 +152,15 @@ public class DatabaseHelpers {
             return Objects.hash(avgSessionDuration, totalSessions, lastSessionTime);
         }
     }
-}
\ No newline at end of file
+
+    /** Partial row for rewriting the stored score of one session (see HistoryRescoreWorker). */
+    public static class SessionScore {
+        public final long sessionId;
+        public final int addictionFlag;
+
+        public SessionScore(long sessionId, int addictionFlag) {
+            this.sessionId = sessionId;
+            this.addictionFlag = addictionFlag;
+        }
+    }
+}
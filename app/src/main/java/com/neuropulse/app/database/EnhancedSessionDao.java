@@ -6,6 +6,7 @@ import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
 import androidx.room.Transaction;
+import androidx.room.Update;
 import java.util.List;
 import com.neuropulse.app.database.DatabaseHelpers.*;
 
@@ -58,6 +59,12 @@ public interface EnhancedSessionDao {
     @Query("DELETE FROM enhanced_session_data WHERE timestamp < :cutoffTime")
     int deleteOldSessions(long cutoffTime);
 
+    // At most :limit of the oldest expired rows, found through idx_timestamp
+    @Query("DELETE FROM enhanced_session_data WHERE sessionId IN (" +
+            "SELECT sessionId FROM enhanced_session_data WHERE timestamp < :cutoffTime " +
+            "ORDER BY timestamp LIMIT :limit)")
+    int deleteOldSessionsBatch(long cutoffTime, int limit);
+
     @Query("SELECT COUNT(*) FROM enhanced_session_data")
     int getTotalSessionCount();
 
@@ -77,6 +84,16 @@ public interface EnhancedSessionDao {
             "ORDER BY timestamp DESC")
     List<EnhancedSessionData> getSessionsInTimeRange(String userId, long startTime, long endTime);
 
+    // Keyset page in (timestamp, sessionId) order; walks idx_timestamp, which ends in the rowid
+    @Query("SELECT * FROM enhanced_session_data " +
+            "WHERE (timestamp, sessionId) > (:afterTimestamp, :afterSessionId) " +
+            "ORDER BY timestamp, sessionId LIMIT :limit")
+    List<EnhancedSessionData> getSessionsAfter(long afterTimestamp, long afterSessionId, int limit);
+
+    // One transaction and one reused statement for the whole list
+    @Update(entity = EnhancedSessionData.class)
+    int updateSessionScores(List<SessionScore> scores);
+
     @Query("SELECT COUNT(DISTINCT userId) FROM enhanced_session_data")
     int getUniqueUserCount();
 
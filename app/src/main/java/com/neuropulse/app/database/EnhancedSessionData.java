@@ -58,7 +58,7 @@ public class EnhancedSessionData {
     public int dopamineSpikeFlag; // 0=no, 1=yes (AI predicted)
 
     @ColumnInfo(name = "addictionFlag")
-    public int addictionFlag; // 0=healthy, 1=at_risk, 2=addicted
+    public int addictionFlag; // 0=healthy, 1=at_risk, 2=addicted: the RuleEngine addiction level
 
     @ColumnInfo(name = "scrollsPerMinute")
     public float scrollsPerMinute;
@@ -0,0 +1,142 @@
+// SessionWriteBuffer.java
+// Location: app/src/main/java/com/neuropulse/app/database/SessionWriteBuffer.java
+package com.neuropulse.app.database;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind buffer for session rows. Rows are collected in memory and written with
+ * {@link EnhancedSessionDao#insertMultipleSessions} once {@link #MAX_PENDING} are waiting
+ * or the oldest has waited {@link #MAX_DELAY_MS}, so many rows share one encrypted
+ * transaction and one WAL sync instead of paying for one each.
+ *
+ * Writes run on the given executor. Callers flush when the process may be about to go
+ * (memory trims, service shutdown); rows still in memory when it is killed are lost.
+ */
+public class SessionWriteBuffer {
+    private static final String TAG = "SessionWriteBuffer";
+
+    public static final int MAX_PENDING = 20;
+    // Bounds what a kill without onTrimMemory loses; still several rows per commit at the 30 s cadence
+    public static final long MAX_DELAY_MS = TimeUnit.MINUTES.toMillis(2);
+    // Kept across failed writes before the oldest rows are dropped
+    private static final int MAX_RETAINED = 200;
+
+    private final EnhancedSessionDao dao;
+    private final ScheduledExecutorService writer;
+
+    private final Object lock = new Object();
+    private ArrayList<EnhancedSessionData> pending = new ArrayList<>(MAX_PENDING);
+    private ScheduledFuture<?> flushTimer;
+    private boolean flushQueued = false;
+    private long rowsWritten = 0;
+    private long commits = 0;
+
+    public SessionWriteBuffer(EnhancedSessionDao dao, ScheduledExecutorService writer) {
+        this.dao = dao;
+        this.writer = writer;
+    }
+
+    /** Queues {@code session} for the next group commit; callable from any thread. */
+    public void add(EnhancedSessionData session) {
+        synchronized (lock) {
+            pending.add(session);
+            try {
+                if (pending.size() >= MAX_PENDING) {
+                    queueFlush();
+                } else {
+                    scheduleFlush();
+                }
+            } catch (RejectedExecutionException e) {
+                Log.w(TAG, "Writer stopped, session not stored");
+                pending.remove(pending.size() - 1);
+            }
+        }
+    }
+
+    /** Writes everything pending as soon as the writer is free. */
+    public void flush() {
+        synchronized (lock) {
+            if (pending.isEmpty()) return;
+            try {
+                queueFlush();
+            } catch (RejectedExecutionException e) {
+                Log.w(TAG, "Writer stopped, " + pending.size() + " sessions not stored");
+            }
+        }
+    }
+
+    /** Rows written and transactions used so far; their ratio is the batching achieved. */
+    public long getRowsWritten() {
+        synchronized (lock) {
+            return rowsWritten;
+        }
+    }
+
+    public long getCommitCount() {
+        synchronized (lock) {
+            return commits;
+        }
+    }
+
+    // Caller holds lock
+    private void scheduleFlush() {
+        if (flushTimer == null) {
+            flushTimer = writer.schedule(this::flushPending, MAX_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // Caller holds lock
+    private void queueFlush() {
+        if (flushQueued) return;
+        writer.execute(this::flushPending);
+        flushQueued = true;
+    }
+
+    private void flushPending() {
+        List<EnhancedSessionData> batch;
+        synchronized (lock) {
+            flushQueued = false;
+            if (flushTimer != null) {
+                flushTimer.cancel(false);
+                flushTimer = null;
+            }
+            if (pending.isEmpty()) return;
+            batch = pending;
+            pending = new ArrayList<>(MAX_PENDING);
+        }
+
+        try {
+            dao.insertMultipleSessions(batch);
+            synchronized (lock) {
+                rowsWritten += batch.size();
+                commits++;
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to store " + batch.size() + " sessions", e);
+            synchronized (lock) {
+                // Retried with the next flush, oldest first; bounded while the database is unusable
+                batch.addAll(pending);
+                int excess = batch.size() - MAX_RETAINED;
+                if (excess > 0) {
+                    Log.w(TAG, "Dropping " + excess + " unsaved sessions");
+                    batch.subList(0, excess).clear();
+                }
+                pending = new ArrayList<>(batch);
+                // Retry on the timer too, not only when the next row arrives
+                try {
+                    if (!flushQueued) scheduleFlush();
+                } catch (RejectedExecutionException stopped) {
+                    Log.w(TAG, "Writer stopped, " + pending.size() + " sessions not stored");
+                }
+            }
+        }
+    }
+}
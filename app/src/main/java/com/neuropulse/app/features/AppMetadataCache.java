@@ -0,0 +1,218 @@
+// AppMetadataCache.java
+// Location: app/src/main/java/com/neuropulse/app/features/AppMetadataCache.java
+package com.neuropulse.app.features;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.util.Log;
+
+import com.neuropulse.app.receivers.PackageChangeReceiver;
+import com.neuropulse.app.utils.MaintenanceScheduler;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Process-wide cache of app labels, system flags and {@link ApplicationInfo#category},
+ * so the real-time tick does not make PackageManager binder calls. The cache is restored
+ * from disk at startup, then revalidated in the background against each package's
+ * lastUpdateTime; only new or updated packages have their labels reloaded. Package
+ * add/remove/change broadcasts invalidate single entries.
+ *
+ * Since API 30 only packages matched by the manifest's {@code <queries>} are visible; that
+ * declares launcher apps, which covers what a user can open. Lookups of anything else
+ * (system services, "unknown") are remembered as misses until the package changes.
+ */
+public class AppMetadataCache {
+    private static final String TAG = "AppMetadataCache";
+    private static final String CACHE_FILE = "app_metadata.bin";
+    private static final int CACHE_VERSION = 1;
+    private static final long PERSIST_INTERVAL_MINUTES = 5;
+
+    private static AppMetadataCache instance;
+    // Cached miss for packages that are not installed or not visible; never persisted
+    private static final AppMetadata MISSING = new AppMetadata("", false, ApplicationInfo.CATEGORY_UNDEFINED, -1);
+
+    public static class AppMetadata {
+        public final String label;
+        public final boolean isSystem;
+        public final int category; // ApplicationInfo.CATEGORY_*
+        public final long lastUpdateTime;
+
+        AppMetadata(String label, boolean isSystem, int category, long lastUpdateTime) {
+            this.label = label;
+            this.isSystem = isSystem;
+            this.category = category;
+            this.lastUpdateTime = lastUpdateTime;
+        }
+    }
+
+    private final PackageManager packageManager;
+    private final File cacheFile;
+    private final ConcurrentHashMap<String, AppMetadata> entries = new ConcurrentHashMap<>();
+    private volatile boolean dirty = false;
+
+    private AppMetadataCache(Context context) {
+        this.packageManager = context.getPackageManager();
+        this.cacheFile = new File(context.getNoBackupFilesDir(), CACHE_FILE);
+
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_PACKAGE_ADDED);
+        filter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+        filter.addAction(Intent.ACTION_PACKAGE_CHANGED);
+        filter.addAction(Intent.ACTION_PACKAGE_REPLACED);
+        filter.addDataScheme("package");
+        context.registerReceiver(new PackageChangeReceiver(this), filter);
+
+        MaintenanceScheduler scheduler = MaintenanceScheduler.getInstance();
+        scheduler.execute(() -> {
+            restore();
+            revalidate();
+            persistIfDirty();
+        });
+        scheduler.schedule(this::persistIfDirty,
+                PERSIST_INTERVAL_MINUTES, PERSIST_INTERVAL_MINUTES, TimeUnit.MINUTES);
+    }
+
+    public static synchronized AppMetadataCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new AppMetadataCache(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * Returns metadata for {@code packageName}, loading it from PackageManager on a miss.
+     * Returns null for packages that are not installed or not visible to this app.
+     */
+    public AppMetadata get(String packageName) {
+        AppMetadata metadata = entries.get(packageName);
+        if (metadata == null) metadata = load(packageName);
+        return metadata != MISSING ? metadata : null;
+    }
+
+    /** Called for package add/remove/change broadcasts; also forgets a cached miss. */
+    public void invalidate(String packageName, boolean removed) {
+        entries.remove(packageName);
+        dirty = true;
+        if (!removed) {
+            MaintenanceScheduler.getInstance().execute(() -> load(packageName));
+        }
+    }
+
+    private AppMetadata load(String packageName) {
+        try {
+            PackageInfo packageInfo = packageManager.getPackageInfo(packageName, 0);
+            AppMetadata metadata = fromApplicationInfo(packageInfo.applicationInfo, packageInfo.lastUpdateTime);
+            entries.put(packageName, metadata);
+            dirty = true;
+            return metadata;
+        } catch (PackageManager.NameNotFoundException e) {
+            entries.put(packageName, MISSING);
+            return MISSING;
+        } catch (Exception e) {
+            Log.w(TAG, "Failed to load metadata for " + packageName, e);
+            return null;
+        }
+    }
+
+    private AppMetadata fromApplicationInfo(ApplicationInfo appInfo, long lastUpdateTime) {
+        boolean isSystem = (appInfo.flags & ApplicationInfo.FLAG_SYSTEM) != 0
+                && (appInfo.flags & ApplicationInfo.FLAG_UPDATED_SYSTEM_APP) == 0;
+        String label = packageManager.getApplicationLabel(appInfo).toString();
+        return new AppMetadata(label, isSystem, appInfo.category, lastUpdateTime);
+    }
+
+    // Reloads labels only for packages that are new or were updated since they were cached
+    private void revalidate() {
+        try {
+            List<PackageInfo> installed = packageManager.getInstalledPackages(0);
+            Set<String> seen = new HashSet<>(installed.size() * 2);
+            int reloaded = 0;
+            for (PackageInfo packageInfo : installed) {
+                seen.add(packageInfo.packageName);
+                AppMetadata cached = entries.get(packageInfo.packageName);
+                if (cached != null && cached.lastUpdateTime == packageInfo.lastUpdateTime) continue;
+                if (packageInfo.applicationInfo == null) continue;
+
+                entries.put(packageInfo.packageName,
+                        fromApplicationInfo(packageInfo.applicationInfo, packageInfo.lastUpdateTime));
+                reloaded++;
+            }
+            // Misses are for packages this listing does not show either
+            if (entries.entrySet().removeIf(e -> e.getValue() != MISSING && !seen.contains(e.getKey()))
+                    || reloaded > 0) {
+                dirty = true;
+            }
+            Log.d(TAG, "Metadata cache warmed: " + entries.size() + " apps, " + reloaded + " reloaded");
+        } catch (Exception e) {
+            Log.w(TAG, "Failed to warm metadata cache", e);
+        }
+    }
+
+    // ---------------- Persistence ----------------
+
+    private void persistIfDirty() {
+        if (!dirty) return;
+        dirty = false;
+        File tmp = new File(cacheFile.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            Map<String, AppMetadata> snapshot = new HashMap<>(entries);
+            snapshot.values().removeIf(metadata -> metadata == MISSING);
+            out.writeInt(CACHE_VERSION);
+            out.writeInt(snapshot.size());
+            for (Map.Entry<String, AppMetadata> entry : snapshot.entrySet()) {
+                AppMetadata metadata = entry.getValue();
+                out.writeUTF(entry.getKey());
+                out.writeUTF(metadata.label);
+                out.writeBoolean(metadata.isSystem);
+                out.writeInt(metadata.category);
+                out.writeLong(metadata.lastUpdateTime);
+            }
+        } catch (IOException e) {
+            dirty = true;
+            Log.w(TAG, "Failed to persist metadata cache", e);
+            return;
+        }
+        if (!tmp.renameTo(cacheFile)) {
+            dirty = true;
+            Log.w(TAG, "Failed to replace metadata cache file");
+        }
+    }
+
+    private void restore() {
+        if (!cacheFile.exists()) return;
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(cacheFile)))) {
+            if (in.readInt() != CACHE_VERSION) return;
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String packageName = in.readUTF();
+                AppMetadata metadata = new AppMetadata(in.readUTF(), in.readBoolean(),
+                        in.readInt(), in.readLong());
+                // Entries loaded since startup are fresher than the file
+                entries.putIfAbsent(packageName, metadata);
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Discarding unreadable metadata cache", e);
+        }
+    }
+}
@@ -0,0 +1,217 @@
+// AppRiskRegistry.java
+// Location: app/src/main/java/com/neuropulse/app/features/AppRiskRegistry.java
+package com.neuropulse.app.features;
+
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.util.Log;
+
+import com.neuropulse.app.utils.MaintenanceScheduler;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-package risk profiles (model category, base risk, risk factors), compiled by
+ * {@code ml_training/build_risk_registry.py} into {@code assets/app_risk_profiles.bin}.
+ *
+ * Profiles live in an immutable open-addressing table published through a volatile
+ * reference, so lookups take no lock and never lose entries. Dropping a newer registry
+ * at {@code files/app_risk_profiles.bin} replaces the table atomically on the next
+ * maintenance check. Packages not in the registry get a profile derived from their
+ * {@link ApplicationInfo#category}.
+ */
+public class AppRiskRegistry {
+    private static final String TAG = "AppRiskRegistry";
+    private static final String REGISTRY_FILE = "app_risk_profiles.bin";
+    private static final int MAGIC = 0x4E505252; // "NPRR"
+    private static final int VERSION = 1;
+    private static final long RELOAD_CHECK_MINUTES = 1;
+
+    public static final int CATEGORY_UNKNOWN = 5;
+
+    private static AppRiskRegistry instance;
+
+    public static final class AppRiskProfile {
+        public final int category;
+        public final float baseRisk;
+        public final String primaryConcern;
+        public final String[] riskFactors;
+
+        AppRiskProfile(int category, float baseRisk, String primaryConcern, String[] riskFactors) {
+            this.category = category;
+            this.baseRisk = baseRisk;
+            this.primaryConcern = primaryConcern;
+            this.riskFactors = riskFactors;
+        }
+    }
+
+    public static final AppRiskProfile DEFAULT_PROFILE = new AppRiskProfile(CATEGORY_UNKNOWN, 0.2f,
+            "Unknown app - moderate caution", new String[]{"Unknown risk factors"});
+
+    // Fallbacks indexed by ApplicationInfo.CATEGORY_* (GAME .. ACCESSIBILITY)
+    private static final AppRiskProfile[] PLATFORM_CATEGORY_PROFILES = {
+            new AppRiskProfile(3, 0.5f, "Gaming", new String[]{"Time investment"}),
+            new AppRiskProfile(2, 0.2f, "Background listening", new String[]{"Autoplay content"}),
+            new AppRiskProfile(2, 0.5f, "Video streaming", new String[]{"Autoplay content", "Endless content"}),
+            new AppRiskProfile(0, 0.4f, "Visual browsing", new String[]{"Visual discovery feed"}),
+            new AppRiskProfile(0, 0.6f, "Social validation seeking", new String[]{"News feed algorithm", "Social interactions"}),
+            new AppRiskProfile(4, 0.4f, "News checking", new String[]{"Real-time updates"}),
+            new AppRiskProfile(9, 0.1f, "Navigation", new String[]{"Productive use"}),
+            new AppRiskProfile(1, 0.1f, "Productivity", new String[]{"Productive use"}),
+            new AppRiskProfile(9, 0.0f, "System utility", new String[]{"Productive use"}),
+    };
+    private static final AppRiskProfile SYSTEM_PROFILE = new AppRiskProfile(9, 0.0f,
+            "System utility", new String[]{"Productive use"});
+
+    /** Immutable open-addressing table; replaced wholesale on reload. */
+    private static final class Table {
+        final String[] keys;
+        final AppRiskProfile[] values;
+        final int mask;
+        final int size;
+
+        Table(String[] packages, AppRiskProfile[] profiles, int count) {
+            int capacity = Integer.highestOneBit(Math.max(4, count * 2 - 1)) << 1;
+            this.keys = new String[capacity];
+            this.values = new AppRiskProfile[capacity];
+            this.mask = capacity - 1;
+            this.size = count;
+            for (int i = 0; i < count; i++) {
+                int slot = slotFor(packages[i]);
+                while (keys[slot] != null && !keys[slot].equals(packages[i])) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = packages[i];
+                values[slot] = profiles[i];
+            }
+        }
+
+        AppRiskProfile get(String packageName) {
+            int slot = slotFor(packageName);
+            String key;
+            while ((key = keys[slot]) != null) {
+                if (key.equals(packageName)) return values[slot];
+                slot = (slot + 1) & mask;
+            }
+            return null;
+        }
+
+        private int slotFor(String key) {
+            int h = key.hashCode();
+            return (h ^ (h >>> 16)) & mask;
+        }
+    }
+
+    private final Context context;
+    private final AppMetadataCache appMetadata;
+    private final File overrideFile;
+    private volatile Table table = new Table(new String[0], new AppRiskProfile[0], 0);
+    private long loadedOverrideStamp = -1;
+
+    private AppRiskRegistry(Context context) {
+        this.context = context;
+        this.appMetadata = AppMetadataCache.getInstance(context);
+        this.overrideFile = new File(context.getFilesDir(), REGISTRY_FILE);
+
+        // The asset is small enough to load up front so the first lookup is already served
+        reload();
+        MaintenanceScheduler.getInstance().schedule(this::reloadIfChanged,
+                RELOAD_CHECK_MINUTES, RELOAD_CHECK_MINUTES, TimeUnit.MINUTES);
+    }
+
+    public static synchronized AppRiskRegistry getInstance(Context context) {
+        if (instance == null) {
+            instance = new AppRiskRegistry(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /** Profile for {@code packageName}; never null. */
+    public AppRiskProfile getProfile(String packageName) {
+        if (packageName == null) return DEFAULT_PROFILE;
+        AppRiskProfile profile = table.get(packageName);
+        return profile != null ? profile : fallbackProfile(packageName);
+    }
+
+    public int getCategory(String packageName) {
+        return getProfile(packageName).category;
+    }
+
+    public int size() {
+        return table.size;
+    }
+
+    /**
+     * Rebuilds the table from the override file if present, otherwise from the bundled
+     * asset. A file that fails to parse leaves the current table in place.
+     */
+    public synchronized void reload() {
+        long stamp = overrideStamp();
+        try (InputStream in = stamp >= 0
+                ? new FileInputStream(overrideFile)
+                : context.getAssets().open(REGISTRY_FILE)) {
+            Table loaded = read(in);
+            table = loaded;
+            loadedOverrideStamp = stamp;
+            Log.d(TAG, "Loaded " + loaded.size + " risk profiles from "
+                    + (stamp >= 0 ? overrideFile : "assets"));
+        } catch (IOException | RuntimeException e) {
+            Log.e(TAG, "Failed to load risk registry, keeping " + table.size + " profiles", e);
+        }
+    }
+
+    private synchronized void reloadIfChanged() {
+        if (overrideStamp() != loadedOverrideStamp) {
+            reload();
+        }
+    }
+
+    // lastModified and length together; -1 when there is no override
+    private long overrideStamp() {
+        if (!overrideFile.isFile()) return -1;
+        return overrideFile.lastModified() * 31 + overrideFile.length();
+    }
+
+    private AppRiskProfile fallbackProfile(String packageName) {
+        AppMetadataCache.AppMetadata metadata = appMetadata.get(packageName);
+        if (metadata == null) return DEFAULT_PROFILE;
+        if (metadata.category >= 0 && metadata.category < PLATFORM_CATEGORY_PROFILES.length) {
+            return PLATFORM_CATEGORY_PROFILES[metadata.category];
+        }
+        return metadata.isSystem ? SYSTEM_PROFILE : DEFAULT_PROFILE;
+    }
+
+    private static Table read(InputStream source) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(source));
+        if (in.readInt() != MAGIC) throw new IOException("Not a risk registry");
+        int version = in.readUnsignedShort();
+        if (version != VERSION) throw new IOException("Unsupported registry version " + version);
+
+        String[] strings = new String[in.readInt()];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = in.readUTF();
+        }
+
+        int count = in.readInt();
+        String[] packages = new String[count];
+        AppRiskProfile[] profiles = new AppRiskProfile[count];
+        for (int i = 0; i < count; i++) {
+            packages[i] = in.readUTF();
+            int category = in.readByte();
+            float baseRisk = in.readShort() / 1000f;
+            String concern = strings[in.readShort()];
+            String[] factors = new String[in.readByte()];
+            for (int f = 0; f < factors.length; f++) {
+                factors[f] = strings[in.readShort()];
+            }
+            profiles[i] = new AppRiskProfile(category, baseRisk, concern, factors);
+        }
+        return new Table(packages, profiles, count);
+    }
+}
@@ -1,47 +1,87 @@
 // EnhancedFeatureExtractor.java (UPDATED VERSION)
 package com.neuropulse.app.features;
 
-import android.app.usage.UsageEvents;
 import android.app.usage.UsageStatsManager;
 import android.content.Context;
 import android.content.SharedPreferences;
 import android.util.Log;
-import android.util.LruCache;
 
 import com.neuropulse.app.database.EnhancedSessionData;
+import com.neuropulse.app.ml.RuleEngine;
+import com.neuropulse.app.utils.ExpiryWheel;
+import com.neuropulse.app.utils.MaintenanceScheduler;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.ReentrantLock;
 
 public class EnhancedFeatureExtractor {
     private static final String TAG = "EnhancedFeatureExtractor";
     private static final String PREFS_NAME = "feature_cache";
-    private static final int MAX_CACHE_SIZE = 100;
+    private static final long TRACKER_TTL = TimeUnit.HOURS.toMillis(1);
 
     private final Context context;
     private final UsageStatsManager usageStatsManager;
     private final SharedPreferences prefs;
-    private final ReentrantLock cacheLock = new ReentrantLock();
 
-    private final LruCache<String, Integer> appCategoryCache;
+    private final AppRiskRegistry riskRegistry;
     private final ConcurrentHashMap<String, AppUsageTracker> appUsageTrackers;
     private final NotificationTracker notificationTracker;
+    private final NotificationResponseIndex responseIndex;
+    private final UserBaselineStats baselineStats;
+    private final SpikeDetector spikeDetector;
+    private final RuleEngine ruleEngine;
     private final RealTimeAppDetector realTimeDetector; // NEW
+    private final UsageEventIngestor eventIngestor;
+    private final ExpiryWheel<String> trackerExpiry;
+    private final MaintenanceScheduler.Registration trackerEviction;
+    private final ScrollCounter.Cursor scrollCursor;
+    private long scrollWindowStart = -1;
+    private long windowScrolls = 0;
+    private long notificationWindowStart = -1;
+    private int[] notificationBaseline = new int[0];
+    private int[] responseBaseline = new int[0];
 
     public EnhancedFeatureExtractor(Context context) {
+        this(context, null);
+    }
+
+    /**
+     * {@code ingestStateName} persists the usage ingest state under that name so a
+     * restarted owner can resume its window; only one live extractor may use a given name.
+     */
+    public EnhancedFeatureExtractor(Context context, String ingestStateName) {
         this.context = context.getApplicationContext();
         this.usageStatsManager = (UsageStatsManager) context.getSystemService(Context.USAGE_STATS_SERVICE);
         this.prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
 
-        this.appCategoryCache = new LruCache<>(MAX_CACHE_SIZE);
+        this.riskRegistry = AppRiskRegistry.getInstance(context);
         this.appUsageTrackers = new ConcurrentHashMap<>();
-        this.notificationTracker = new NotificationTracker();
+        this.notificationTracker = NotificationTracker.getInstance();
         this.realTimeDetector = new RealTimeAppDetector(context); // NEW
+        this.eventIngestor = new UsageEventIngestor(this.context, usageStatsManager, ingestStateName);
+        this.responseIndex = new NotificationResponseIndex();
+        notificationTracker.addListener(responseIndex);
+        realTimeDetector.getSessionizer().addListener(responseIndex);
+        this.baselineStats = UserBaselineStats.getInstance(context);
+        realTimeDetector.getSessionizer().addListener(baselineStats);
+        this.spikeDetector = SpikeDetector.getInstance();
+        realTimeDetector.getSessionizer().addListener(spikeDetector);
+        this.ruleEngine = RuleEngine.getInstance(context);
+
+        this.trackerExpiry = new ExpiryWheel<>(TimeUnit.MINUTES.toMillis(1), 64);
+        this.scrollCursor = ScrollCounter.getInstance().newCursor();
+
+        this.trackerEviction = MaintenanceScheduler.getInstance().schedule(
+                this::evictIdleTrackers, 1, 5, TimeUnit.MINUTES);
+    }
 
-        initializeAppCategories();
-        cleanupOldTrackers();
+    /** Releases the maintenance task and listeners; the extractor must not be used afterwards. */
+    public void close() {
+        trackerEviction.cancel();
+        notificationTracker.removeListener(responseIndex);
+        realTimeDetector.getSessionizer().removeListener(baselineStats);
+        realTimeDetector.getSessionizer().removeListener(spikeDetector);
     }
 
     /**
@@ -87,22 +127,15 @@ public class EnhancedFeatureExtractor {
                 sessionData.appName = currentAppInfo.displayName;
                 sessionData.appCategory = currentAppInfo.category;
 
-                // Set dopamine spike flag based on current app risk
-                sessionData.dopamineSpikeFlag = currentAppInfo.addictionRisk > 0.6f ? 1 : 0;
-
-                // Update addiction flag based on risk level
-                if (currentAppInfo.addictionRisk >= 0.7f) {
-                    sessionData.addictionFlag = 2; // High risk
-                } else if (currentAppInfo.addictionRisk >= 0.4f) {
-                    sessionData.addictionFlag = 1; // At risk
-                } else {
-                    sessionData.addictionFlag = 0; // Healthy
-                }
+                // An engagement burst detected anywhere in the window
+                sessionData.dopamineSpikeFlag = spikeDetector.hasSpikeSince(sessionStart) ? 1 : 0;
             } else {
                 // Create new session data with current app info
                 sessionData = createSessionDataFromCurrentApp(userId, sessionStart, sessionEnd, currentAppInfo);
             }
 
+            // The rules' addiction level, which HistoryRescoreWorker re-applies when the rules change
+            sessionData.addictionFlag = ruleEngine.evaluate(sessionData).addictionLevel;
             return sessionData;
 
         } catch (Exception e) {
@@ -125,9 +158,7 @@ public class EnhancedFeatureExtractor {
         sessionData.consecutiveSameApp = 30; // Default value
         sessionData.timeOfDay = (sessionStart % TimeUnit.DAYS.toMillis(1)) / (float) TimeUnit.DAYS.toMillis(1);
         sessionData.bingeFlag = currentApp.addictionRisk > 0.7f ? 1 : 0;
-        sessionData.dopamineSpikeFlag = currentApp.addictionRisk > 0.6f ? 1 : 0;
-        sessionData.addictionFlag = currentApp.addictionRisk >= 0.7f ? 2 :
-                currentApp.addictionRisk >= 0.4f ? 1 : 0;
+        sessionData.dopamineSpikeFlag = spikeDetector.hasSpikeSince(sessionStart) ? 1 : 0;
         sessionData.timestamp = sessionEnd;
         return sessionData;
     }
@@ -181,47 +212,38 @@ public class EnhancedFeatureExtractor {
         }
     }
 
-    // =========================== EXISTING METHODS (UNCHANGED) ===========================
+    // Scrolls since the session started; the counters are drained once per tick
+    private long drainScrolls(long sessionStart) {
+        long newScrolls = scrollCursor.drain();
+        if (sessionStart != scrollWindowStart) {
+            scrollWindowStart = sessionStart;
+            windowScrolls = 0;
+        }
+        windowScrolls += newScrolls;
+        return windowScrolls;
+    }
 
-    private void initializeAppCategories() {
-        Map<String, Integer> targetApps = new HashMap<>();
-
-        // Social Media Apps (Category 0 - High Risk)
-        targetApps.put("com.instagram.android", 0);
-        targetApps.put("com.facebook.katana", 0);
-        targetApps.put("com.zhiliaoapp.musically", 0); // TikTok
-        targetApps.put("com.snapchat.android", 0);
-        targetApps.put("com.twitter.android", 0);
-        targetApps.put("com.reddit.frontpage", 0);
-        targetApps.put("com.pinterest", 0);
-
-        // Video/Entertainment (Category 2 - Medium-High Risk)
-        targetApps.put("com.google.android.youtube", 2);
-        targetApps.put("com.netflix.mediaclient", 2);
-        targetApps.put("com.amazon.avod.thirdpartyclient", 2); // Prime Video
-        targetApps.put("com.hulu.plus", 2);
-
-        // Messaging (Category 6 - Medium Risk)
-        targetApps.put("com.whatsapp", 6);
-        targetApps.put("com.facebook.orca", 6); // Messenger
-        targetApps.put("com.discord", 6);
-        targetApps.put("org.telegram.messenger", 6);
-
-        // Games (Category 3 - High Risk)
-        targetApps.put("com.king.candycrushsaga", 3);
-        targetApps.put("com.supercell.clashofclans", 3);
-        targetApps.put("com.roblox.client", 3);
-
-        cacheLock.lock();
-        try {
-            for (Map.Entry<String, Integer> entry : targetApps.entrySet()) {
-                appCategoryCache.put(entry.getKey(), entry.getValue());
-            }
-        } finally {
-            cacheLock.unlock();
+    // Notification count and dominant response for the app since the session started
+    private void fillNotificationFeatures(EnhancedSessionData sessionData, String packageName,
+                                          long sessionStart, long sessionEnd) {
+        if (sessionStart != notificationWindowStart) {
+            notificationWindowStart = sessionStart;
+            notificationBaseline = notificationTracker.snapshotPostCounts();
+            responseBaseline = responseIndex.snapshotOutcomeCounts();
         }
+        // Draining the tracker feeds the response index before it finalizes
+        notificationTracker.drain();
+        responseIndex.advanceTo(sessionEnd);
+
+        int packageId = PackageIdDictionary.getInstance().peekId(packageName);
+        if (packageId < 0) return;
+        int baseline = packageId < notificationBaseline.length ? notificationBaseline[packageId] : 0;
+        sessionData.notifCount = notificationTracker.getPostCount(packageId) - baseline;
+        sessionData.notifResponse = responseIndex.dominantResponseSince(packageId, responseBaseline);
     }
 
+    // =========================== EXISTING METHODS (UNCHANGED) ===========================
+
     // Original method (unchanged)
     public EnhancedSessionData extractFeatures(String userId, long sessionStart, long sessionEnd) {
         if (userId == null || userId.trim().isEmpty()) return null;
@@ -237,55 +259,51 @@ public class EnhancedFeatureExtractor {
             long sessionDuration = sessionEnd - sessionStart;
             if (sessionDuration < TimeUnit.SECONDS.toMillis(5)) return null;
 
-            Map<String, Integer> appUsageCount = new HashMap<>();
-            Map<String, Long> lastUsageTime = new HashMap<>();
-            int totalUnlocks = 0;
-            int totalScrolls = 0;
-            int bingeFlag = 0;
-
-            UsageEvents events = usageStatsManager.queryEvents(sessionStart, sessionEnd);
+            // Only events newer than the ingestor's watermark are read on each call
+            boolean ingested = eventIngestor.ingest(sessionStart, sessionEnd, (packageName, eventType, timestamp) -> {
+                AppUsageTracker tracker = appUsageTrackers.get(packageName);
+                if (tracker == null) {
+                    tracker = new AppUsageTracker();
+                    appUsageTrackers.put(packageName, tracker);
+                    trackerExpiry.schedule(packageName, timestamp + TRACKER_TTL);
+                }
+                return tracker.recordUsage(timestamp);
+            });
 
-            if (events == null) {
+            if (!ingested) {
                 Log.w(TAG, "No usage events available, creating dummy data");
                 return createDummySessionData(userId, sessionStart, sessionEnd);
             }
 
-            UsageEvents.Event event = new UsageEvents.Event();
-            while (events.hasNextEvent()) {
-                events.getNextEvent(event);
-                String packageName = event.getPackageName();
-                int eventType = event.getEventType();
-
-                appUsageCount.put(packageName, appUsageCount.getOrDefault(packageName, 0) + 1);
-                lastUsageTime.put(packageName, event.getTimeStamp());
-
-                if (eventType == UsageEvents.Event.MOVE_TO_FOREGROUND) totalUnlocks++;
-
-                AppUsageTracker tracker = appUsageTrackers.computeIfAbsent(packageName, k -> new AppUsageTracker());
-                if (tracker.recordUsage(event.getTimeStamp())) bingeFlag = 1;
-            }
+            int unlocks = ScreenStateTracker.getInstance().countUnlocksSince(sessionStart);
+            long totalScrolls = drainScrolls(sessionStart);
+            int bingeFlag = eventIngestor.isBingeDetected() ? 1 : 0;
 
-            // Determine primary app
-            String primaryApp = appUsageCount.entrySet().stream()
-                    .max(Map.Entry.comparingByValue())
-                    .map(Map.Entry::getKey)
-                    .orElse("unknown");
+            // Primary app is the one in the foreground; fall back to the busiest package
+            ForegroundSessionizer sessionizer = realTimeDetector.getSessionizer();
+            String primaryApp = sessionizer.getOpenPackage();
+            if (primaryApp == null) primaryApp = eventIngestor.getTopPackage();
+            if (primaryApp == null) primaryApp = "unknown";
 
-            int appCategory = appCategoryCache.get(primaryApp) != null ? appCategoryCache.get(primaryApp) : 5;
-            long consecutiveTime = lastUsageTime.getOrDefault(primaryApp, 0L) - sessionStart;
-            float normalizedConsecutive = Math.min(consecutiveTime / (3f * 3600f * 1000f), 1f);
+            int appCategory = riskRegistry.getCategory(primaryApp);
+            long consecutiveTime = sessionizer.getOpenDuration(primaryApp, sessionEnd);
+            long consecutiveMinutes = Math.min(TimeUnit.MILLISECONDS.toMinutes(consecutiveTime), 180L);
 
             EnhancedSessionData sessionData = new EnhancedSessionData();
             sessionData.userId = userId;
             sessionData.appName = primaryApp;
             sessionData.appCategory = appCategory;
             sessionData.sessionDuration = sessionDuration;
-            sessionData.unlockFrequency = totalUnlocks;
+            sessionData.unlockCount = unlocks;
+            // Unlocks per hour, as in training (which floors sessions at 30s)
+            sessionData.unlockFrequency = unlocks * (float) TimeUnit.HOURS.toMillis(1)
+                    / Math.max(sessionDuration, TimeUnit.SECONDS.toMillis(30));
             sessionData.scrollsPerMinute = totalScrolls / (sessionDuration / 60000f);
-            sessionData.consecutiveSameApp = (int) (normalizedConsecutive * 180);
+            sessionData.consecutiveSameApp = (int) consecutiveMinutes;
             sessionData.timeOfDay = (sessionStart % TimeUnit.DAYS.toMillis(1)) / (float) TimeUnit.DAYS.toMillis(1);
             sessionData.bingeFlag = bingeFlag;
             sessionData.timestamp = sessionEnd;
+            fillNotificationFeatures(sessionData, primaryApp, sessionStart, sessionEnd);
 
             return sessionData;
 
@@ -298,6 +316,14 @@ public class EnhancedFeatureExtractor {
         }
     }
 
+    /**
+     * Time up to which events of the given window have already been ingested, or 0 if the
+     * persisted ingest state belongs to a different window.
+     */
+    public long getLastIngestTime(long sessionStart) {
+        return eventIngestor.getWindowStart() == sessionStart ? eventIngestor.getWatermark() : 0L;
+    }
+
     // New helper for dummy fallback
     private EnhancedSessionData createDummySessionData(String userId, long sessionStart, long sessionEnd) {
         EnhancedSessionData sessionData = new EnhancedSessionData();
@@ -314,19 +340,20 @@ public class EnhancedFeatureExtractor {
         return sessionData;
     }
 
-    private void cleanupOldTrackers() {
-        Timer timer = new Timer();
-        timer.scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
-                long now = System.currentTimeMillis();
-                appUsageTrackers.entrySet().removeIf(e -> (now - e.getValue().lastUsage) > TimeUnit.HOURS.toMillis(1));
-            }
-        }, TimeUnit.MINUTES.toMillis(1), TimeUnit.MINUTES.toMillis(5));
+    // Runs on the maintenance thread; only visits trackers whose deadline has passed
+    private void evictIdleTrackers() {
+        trackerExpiry.advance(System.currentTimeMillis(), (packageName, now) -> {
+            AppUsageTracker tracker = appUsageTrackers.get(packageName);
+            if (tracker == null) return 0L;
+            long deadline = tracker.lastUsage + TRACKER_TTL;
+            if (deadline > now) return deadline;
+            appUsageTrackers.remove(packageName, tracker);
+            return 0L;
+        });
     }
 
     private static class AppUsageTracker {
-        private long lastUsage = 0;
+        private volatile long lastUsage = 0;
         private int consecutiveCount = 0;
 
         boolean recordUsage(long timestamp) {
@@ -339,6 +366,4 @@ public class EnhancedFeatureExtractor {
             return consecutiveCount >= 10;
         }
     }
-
-    private static class NotificationTracker { }
 }
\ No newline at end of file
@@ -0,0 +1,127 @@
+// ForegroundSessionizer.java
+// Location: app/src/main/java/com/neuropulse/app/features/ForegroundSessionizer.java
+package com.neuropulse.app.features;
+
+import android.app.usage.UsageEvents;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streaming sessionizer pairing MOVE_TO_FOREGROUND / MOVE_TO_BACKGROUND transitions into
+ * per-app usage intervals. A background followed by a foreground of the same app within
+ * {@link #MERGE_GAP} (activity changes, brief notification shade pulls) continues the
+ * same session. Closed sessions are reported to listeners as they happen, and the open
+ * session is available in O(1) without re-deriving it from raw events.
+ */
+public class ForegroundSessionizer {
+    public static final long MERGE_GAP = TimeUnit.SECONDS.toMillis(30);
+
+    public interface SessionListener {
+        void onSessionOpened(int packageId, long startTime);
+
+        void onSessionClosed(ForegroundSession session);
+    }
+
+    public static class ForegroundSession {
+        public final int packageId;
+        public final String packageName;
+        public final long startTime;
+        public final long endTime;
+        public final int eventCount;
+
+        ForegroundSession(int packageId, long startTime, long endTime, int eventCount) {
+            this.packageId = packageId;
+            this.packageName = PackageIdDictionary.getInstance().nameOf(packageId);
+            this.startTime = startTime;
+            this.endTime = endTime;
+            this.eventCount = eventCount;
+        }
+
+        public long getDuration() {
+            return endTime - startTime;
+        }
+    }
+
+    private final CopyOnWriteArrayList<SessionListener> listeners = new CopyOnWriteArrayList<>();
+
+    private int openPackageId = PackageIdDictionary.UNKNOWN_ID;
+    private long openStart;
+    private long pendingBackground = -1; // time the open app went to background, if it did
+    private int openEventCount;
+
+    public void addListener(SessionListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(SessionListener listener) {
+        listeners.remove(listener);
+    }
+
+    public synchronized void onEvent(int packageId, int eventType, long timestamp) {
+        closeIfExpired(timestamp);
+
+        if (eventType == UsageEvents.Event.MOVE_TO_FOREGROUND) {
+            if (packageId == openPackageId) {
+                pendingBackground = -1; // within the merge gap: same session
+                openEventCount++;
+                return;
+            }
+            if (openPackageId != PackageIdDictionary.UNKNOWN_ID) {
+                closeOpenSession(pendingBackground >= 0 ? pendingBackground : timestamp);
+            }
+            openSession(packageId, timestamp);
+        } else if (packageId == openPackageId) {
+            if (eventType == UsageEvents.Event.MOVE_TO_BACKGROUND) {
+                pendingBackground = timestamp;
+            }
+            openEventCount++;
+        }
+    }
+
+    /** Closes the open session if its app has been in the background past the merge gap. */
+    public synchronized void advanceTo(long now) {
+        closeIfExpired(now);
+    }
+
+    /** Package of the session currently in the foreground, or null. */
+    public synchronized String getOpenPackage() {
+        return openPackageId != PackageIdDictionary.UNKNOWN_ID
+                ? PackageIdDictionary.getInstance().nameOf(openPackageId) : null;
+    }
+
+    /** Duration of the open session for {@code packageName} at {@code now}, or 0. */
+    public synchronized long getOpenDuration(String packageName, long now) {
+        if (openPackageId == PackageIdDictionary.UNKNOWN_ID) return 0L;
+        if (openPackageId != PackageIdDictionary.getInstance().peekId(packageName)) return 0L;
+        long end = pendingBackground >= 0 ? pendingBackground : now;
+        return Math.max(0L, end - openStart);
+    }
+
+    private void closeIfExpired(long now) {
+        if (pendingBackground >= 0 && now - pendingBackground > MERGE_GAP) {
+            closeOpenSession(pendingBackground);
+        }
+    }
+
+    private void openSession(int packageId, long timestamp) {
+        openPackageId = packageId;
+        openStart = timestamp;
+        pendingBackground = -1;
+        openEventCount = 1;
+        for (SessionListener listener : listeners) {
+            listener.onSessionOpened(packageId, timestamp);
+        }
+    }
+
+    private void closeOpenSession(long endTime) {
+        ForegroundSession session = new ForegroundSession(openPackageId, openStart,
+                Math.max(openStart, endTime), openEventCount);
+        openPackageId = PackageIdDictionary.UNKNOWN_ID;
+        pendingBackground = -1;
+        openEventCount = 0;
+        for (SessionListener listener : listeners) {
+            listener.onSessionClosed(session);
+        }
+    }
+}
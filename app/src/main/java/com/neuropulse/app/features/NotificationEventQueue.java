@@ -0,0 +1,110 @@
+// NotificationEventQueue.java
+// Location: app/src/main/java/com/neuropulse/app/features/NotificationEventQueue.java
+package com.neuropulse.app.features;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free multi-producer / single-consumer queue carrying notification posts
+ * and removals from {@code NotificationListener} to {@link NotificationTracker}.
+ *
+ * Events are stored field-by-field in preallocated primitive arrays; each slot carries a
+ * sequence number that producers claim with a CAS on the tail and publish with a volatile
+ * store, so enqueueing never allocates or blocks. When the consumer falls a full ring
+ * behind, new events are dropped and counted rather than overwriting unread ones.
+ */
+public final class NotificationEventQueue {
+    public static final int TYPE_POSTED = 0;
+    public static final int TYPE_REMOVED = 1;
+
+    public static final int NO_REASON = 0;
+
+    private static final int CAPACITY = 1024; // power of two
+    private static final int MASK = CAPACITY - 1;
+
+    private static final NotificationEventQueue INSTANCE = new NotificationEventQueue();
+
+    public interface Consumer {
+        /**
+         * @param keyHash hash of the notification key, pairing a post with its removal
+         * @param reason  NotificationListenerService.REASON_* for removals, else NO_REASON
+         */
+        void onNotificationEvent(int type, int packageId, int keyHash, int reason, long timestamp);
+    }
+
+    private final AtomicLongArray sequences = new AtomicLongArray(CAPACITY);
+    private final int[] types = new int[CAPACITY];
+    private final int[] packageIds = new int[CAPACITY];
+    private final int[] keyHashes = new int[CAPACITY];
+    private final int[] reasons = new int[CAPACITY];
+    private final long[] timestamps = new long[CAPACITY];
+
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private long head = 0; // consumer-owned
+
+    // Package-private for tests; the app shares getInstance()
+    NotificationEventQueue() {
+        for (int i = 0; i < CAPACITY; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    public static NotificationEventQueue getInstance() {
+        return INSTANCE;
+    }
+
+    /** Enqueues an event; returns false (and counts a drop) if the queue is full. */
+    public boolean offer(int type, int packageId, int keyHash, int reason, long timestamp) {
+        long position = tail.get();
+        int index;
+        while (true) {
+            index = (int) (position & MASK);
+            long diff = sequences.get(index) - position;
+            if (diff == 0) {
+                if (tail.compareAndSet(position, position + 1)) break;
+                position = tail.get();
+            } else if (diff < 0) {
+                dropped.incrementAndGet();
+                return false;
+            } else {
+                position = tail.get(); // another producer claimed this slot
+            }
+        }
+
+        types[index] = type;
+        packageIds[index] = packageId;
+        keyHashes[index] = keyHash;
+        reasons[index] = reason;
+        timestamps[index] = timestamp;
+        // The volatile store publishes the plain writes above to the consumer
+        sequences.set(index, position + 1);
+        return true;
+    }
+
+    /**
+     * Hands up to {@code maxEvents} queued events to {@code consumer} in FIFO order.
+     * Only one thread may drain at a time.
+     */
+    public synchronized int drain(Consumer consumer, int maxEvents) {
+        int drained = 0;
+        while (drained < maxEvents) {
+            int index = (int) (head & MASK);
+            if (sequences.get(index) != head + 1) break; // empty, or the producer is mid-write
+
+            consumer.onNotificationEvent(types[index], packageIds[index], keyHashes[index],
+                    reasons[index], timestamps[index]);
+            // Free the slot for the producer one lap ahead
+            sequences.set(index, head + CAPACITY);
+            head++;
+            drained++;
+        }
+        return drained;
+    }
+
+    /** Events dropped because the queue was full. */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+}
@@ -0,0 +1,238 @@
+// NotificationResponseIndex.java
+// Location: app/src/main/java/com/neuropulse/app/features/NotificationResponseIndex.java
+package com.neuropulse.app.features;
+
+import android.service.notification.NotificationListenerService;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streaming join of notification posts/removals against foreground session opens,
+ * deciding per notification whether it was acted upon, dismissed or ignored, and how fast.
+ *
+ * The two streams arrive out of step (notifications when the queue is drained, opens
+ * when the usage event buffer refreshes), so the join is symmetric: a post probes the
+ * recent opens, an open probes the pending posts, and a removal that is not a click waits
+ * {@link #JOIN_SLACK} for a late open before it is finalized. Pending notifications and
+ * recent opens are both bounded; per-app latencies are kept as log2 histograms.
+ */
+public class NotificationResponseIndex implements NotificationEventQueue.Consumer,
+        ForegroundSessionizer.SessionListener {
+
+    public static final int RESPONSE_IGNORED = 0;
+    public static final int RESPONSE_DISMISSED = 1;
+    public static final int RESPONSE_ACTED = 2;
+
+    /** How long after a post opening the app still counts as a response. */
+    public static final long RESPONSE_WINDOW = TimeUnit.MINUTES.toMillis(10);
+    /** Allowance for one stream lagging the other. */
+    public static final long JOIN_SLACK = TimeUnit.SECONDS.toMillis(15);
+
+    public static final int LATENCY_BUCKETS = 16; // bucket b holds latencies < 2^b seconds
+    private static final int OUTCOMES = 3;
+    private static final int MAX_PENDING = 512;
+    private static final int OPEN_HISTORY = 256;
+
+    private static final class Pending {
+        final int packageId;
+        final long key;
+        final long postTime;
+        long removedAt = -1;
+        int removalReason;
+        boolean resolved;
+
+        Pending(int packageId, long key, long postTime) {
+            this.packageId = packageId;
+            this.key = key;
+            this.postTime = postTime;
+        }
+
+        long deadline() {
+            return removedAt >= 0 ? removedAt + JOIN_SLACK : postTime + RESPONSE_WINDOW + JOIN_SLACK;
+        }
+    }
+
+    private final ArrayList<Pending> pending = new ArrayList<>();
+    private final HashMap<Long, Pending> pendingByKey = new HashMap<>();
+
+    private final int[] openPackages = new int[OPEN_HISTORY];
+    private final long[] openTimes = new long[OPEN_HISTORY];
+    private int openCount = 0;
+
+    private int[] outcomeCounts = new int[64 * OUTCOMES];
+    private int[] latencyHistograms = new int[64 * LATENCY_BUCKETS];
+
+    // ---------------- Notification stream ----------------
+
+    @Override
+    public synchronized void onNotificationEvent(int type, int packageId, int keyHash, int reason, long timestamp) {
+        if (packageId < 0) return;
+        long key = ((long) packageId << 32) | (keyHash & 0xFFFFFFFFL);
+        Pending entry = pendingByKey.get(key);
+
+        if (type == NotificationEventQueue.TYPE_POSTED) {
+            if (entry != null) return; // an update of a notification we already track
+            if (pending.size() >= MAX_PENDING) finalizeOldest();
+
+            entry = new Pending(packageId, key, timestamp);
+            pending.add(entry);
+            pendingByKey.put(key, entry);
+            // The open may already have been seen if usage events were processed first
+            long openTime = findOpen(packageId, timestamp, timestamp + RESPONSE_WINDOW);
+            if (openTime >= 0) resolve(entry, RESPONSE_ACTED, openTime - timestamp);
+            return;
+        }
+
+        if (entry == null || entry.resolved) return;
+        if (reason == NotificationListenerService.REASON_CLICK) {
+            resolve(entry, RESPONSE_ACTED, timestamp - entry.postTime);
+        } else {
+            // Apps usually cancel their own notification when opened; wait for that open
+            entry.removedAt = timestamp;
+            entry.removalReason = reason;
+        }
+    }
+
+    // ---------------- Foreground stream ----------------
+
+    @Override
+    public synchronized void onSessionOpened(int packageId, long startTime) {
+        openPackages[openCount % OPEN_HISTORY] = packageId;
+        openTimes[openCount % OPEN_HISTORY] = startTime;
+        openCount++;
+
+        for (int i = 0; i < pending.size(); i++) {
+            Pending entry = pending.get(i);
+            if (entry.resolved || entry.packageId != packageId) continue;
+            long latest = entry.removedAt >= 0 ? entry.removedAt + JOIN_SLACK : entry.postTime + RESPONSE_WINDOW;
+            if (startTime >= entry.postTime && startTime <= latest) {
+                resolve(entry, RESPONSE_ACTED, startTime - entry.postTime);
+            }
+        }
+    }
+
+    @Override
+    public void onSessionClosed(ForegroundSessionizer.ForegroundSession session) {
+        // Only opens matter for responses
+    }
+
+    // ---------------- Finalization and queries ----------------
+
+    /** Finalizes notifications whose join window has closed by {@code now}. */
+    public synchronized void advanceTo(long now) {
+        int kept = 0;
+        for (int i = 0; i < pending.size(); i++) {
+            Pending entry = pending.get(i);
+            if (!entry.resolved && entry.deadline() < now) finalizeUnanswered(entry);
+            if (entry.resolved) {
+                pendingByKey.remove(entry.key);
+            } else {
+                pending.set(kept++, entry);
+            }
+        }
+        pending.subList(kept, pending.size()).clear();
+    }
+
+    /** Cumulative outcome counts for the package, indexed by the RESPONSE_* constants. */
+    public synchronized int[] getOutcomeCounts(int packageId) {
+        int[] counts = new int[OUTCOMES];
+        if (packageId >= 0 && (packageId + 1) * OUTCOMES <= outcomeCounts.length) {
+            System.arraycopy(outcomeCounts, packageId * OUTCOMES, counts, 0, OUTCOMES);
+        }
+        return counts;
+    }
+
+    /**
+     * Upper bound of the latency bucket holding the given percentile (0-1) of the package's
+     * acted-upon responses, in milliseconds; -1 if none were recorded.
+     */
+    public synchronized long getLatencyPercentile(int packageId, float percentile) {
+        if (packageId < 0 || (packageId + 1) * LATENCY_BUCKETS > latencyHistograms.length) return -1;
+        int base = packageId * LATENCY_BUCKETS;
+        int total = 0;
+        for (int b = 0; b < LATENCY_BUCKETS; b++) total += latencyHistograms[base + b];
+        if (total == 0) return -1;
+
+        int target = Math.max(1, (int) Math.ceil(total * percentile));
+        int seen = 0;
+        for (int b = 0; b < LATENCY_BUCKETS; b++) {
+            seen += latencyHistograms[base + b];
+            if (seen >= target) return TimeUnit.SECONDS.toMillis(1L << b);
+        }
+        return TimeUnit.SECONDS.toMillis(1L << (LATENCY_BUCKETS - 1));
+    }
+
+    /** Copy of all cumulative outcome counts, to diff later counts against. */
+    public synchronized int[] snapshotOutcomeCounts() {
+        return Arrays.copyOf(outcomeCounts, outcomeCounts.length);
+    }
+
+    /**
+     * Dominant response (RESPONSE_*) among the package's outcomes since {@code baseline}
+     * was taken with {@link #snapshotOutcomeCounts}. Ties go to the more engaged response;
+     * no notifications counts as ignored.
+     */
+    public int dominantResponseSince(int packageId, int[] baseline) {
+        int[] counts = getOutcomeCounts(packageId);
+        int base = packageId * OUTCOMES;
+        int best = RESPONSE_IGNORED;
+        int bestCount = 0;
+        for (int outcome = 0; outcome < OUTCOMES; outcome++) {
+            int before = base >= 0 && base + outcome < baseline.length ? baseline[base + outcome] : 0;
+            int count = counts[outcome] - before;
+            if (count > 0 && count >= bestCount) {
+                best = outcome;
+                bestCount = count;
+            }
+        }
+        return best;
+    }
+
+    private void finalizeUnanswered(Pending entry) {
+        boolean userDismissed = entry.removalReason == NotificationListenerService.REASON_CANCEL
+                || entry.removalReason == NotificationListenerService.REASON_CANCEL_ALL;
+        resolve(entry, entry.removedAt >= 0 && userDismissed ? RESPONSE_DISMISSED : RESPONSE_IGNORED, -1);
+    }
+
+    private void finalizeOldest() {
+        Pending entry = pending.remove(0);
+        if (!entry.resolved) finalizeUnanswered(entry);
+        pendingByKey.remove(entry.key);
+    }
+
+    private void resolve(Pending entry, int outcome, long latencyMillis) {
+        entry.resolved = true;
+        ensureCapacity(entry.packageId);
+        outcomeCounts[entry.packageId * OUTCOMES + outcome]++;
+        if (outcome == RESPONSE_ACTED) {
+            SpikeDetector.getInstance().onNotificationResponse(entry.packageId, entry.postTime,
+                    entry.postTime + Math.max(0L, latencyMillis));
+            long seconds = Math.max(0L, latencyMillis) / 1000L;
+            int bucket = Math.min(LATENCY_BUCKETS - 1, 64 - Long.numberOfLeadingZeros(seconds));
+            latencyHistograms[entry.packageId * LATENCY_BUCKETS + bucket]++;
+        }
+    }
+
+    // Most recent open of the package in [from, to], or -1
+    private long findOpen(int packageId, long from, long to) {
+        int retained = Math.min(openCount, OPEN_HISTORY);
+        for (int i = 1; i <= retained; i++) {
+            int index = (openCount - i) % OPEN_HISTORY;
+            long time = openTimes[index];
+            if (time < from) break; // the sessionizer reports opens in time order
+            if (openPackages[index] == packageId && time <= to) return time;
+        }
+        return -1;
+    }
+
+    private void ensureCapacity(int packageId) {
+        int needed = packageId + 1;
+        if (needed * OUTCOMES <= outcomeCounts.length) return;
+        int capacity = Math.max(needed, outcomeCounts.length / OUTCOMES * 2);
+        outcomeCounts = Arrays.copyOf(outcomeCounts, capacity * OUTCOMES);
+        latencyHistograms = Arrays.copyOf(latencyHistograms, capacity * LATENCY_BUCKETS);
+    }
+}
@@ -0,0 +1,81 @@
+// NotificationTracker.java
+// Location: app/src/main/java/com/neuropulse/app/features/NotificationTracker.java
+package com.neuropulse.app.features;
+
+import java.util.Arrays;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Single consumer of {@link NotificationEventQueue}: drains it in batches into cumulative
+ * per-package post and removal counts, indexed by {@link PackageIdDictionary} ID. The
+ * queue is drained lazily whenever counts are read, so the listener thread only ever
+ * pays for an enqueue.
+ */
+public final class NotificationTracker implements NotificationEventQueue.Consumer {
+    private static final int DRAIN_BATCH = 256;
+
+    private static final NotificationTracker INSTANCE = new NotificationTracker();
+
+    private final NotificationEventQueue queue = NotificationEventQueue.getInstance();
+    private final CopyOnWriteArrayList<NotificationEventQueue.Consumer> listeners = new CopyOnWriteArrayList<>();
+    private int[] postCounts = new int[64];
+    private int[] removalCounts = new int[64];
+
+    private NotificationTracker() { }
+
+    public static NotificationTracker getInstance() {
+        return INSTANCE;
+    }
+
+    /** Additional consumers that see every drained event after it has been counted. */
+    public void addListener(NotificationEventQueue.Consumer listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(NotificationEventQueue.Consumer listener) {
+        listeners.remove(listener);
+    }
+
+    /** Moves everything queued so far into the counters. */
+    public synchronized void drain() {
+        while (queue.drain(this, DRAIN_BATCH) == DRAIN_BATCH) {
+            // keep going until the queue is empty
+        }
+    }
+
+    /** Notifications posted by the package since process start. */
+    public synchronized int getPostCount(int packageId) {
+        drain();
+        return packageId >= 0 && packageId < postCounts.length ? postCounts[packageId] : 0;
+    }
+
+    public synchronized int getRemovalCount(int packageId) {
+        drain();
+        return packageId >= 0 && packageId < removalCounts.length ? removalCounts[packageId] : 0;
+    }
+
+    /** Copy of the cumulative post counts, to diff later counts against. */
+    public synchronized int[] snapshotPostCounts() {
+        drain();
+        return Arrays.copyOf(postCounts, postCounts.length);
+    }
+
+    @Override
+    public void onNotificationEvent(int type, int packageId, int keyHash, int reason, long timestamp) {
+        if (packageId >= 0) {
+            if (packageId >= postCounts.length) {
+                int capacity = Math.max(packageId + 1, postCounts.length * 2);
+                postCounts = Arrays.copyOf(postCounts, capacity);
+                removalCounts = Arrays.copyOf(removalCounts, capacity);
+            }
+            if (type == NotificationEventQueue.TYPE_POSTED) {
+                postCounts[packageId]++;
+            } else {
+                removalCounts[packageId]++;
+            }
+        }
+        for (NotificationEventQueue.Consumer listener : listeners) {
+            listener.onNotificationEvent(type, packageId, keyHash, reason, timestamp);
+        }
+    }
+}
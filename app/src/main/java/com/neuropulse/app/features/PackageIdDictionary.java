@@ -0,0 +1,69 @@
+// PackageIdDictionary.java
+// Location: app/src/main/java/com/neuropulse/app/features/PackageIdDictionary.java
+package com.neuropulse.app.features;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide dictionary mapping package names to dense int IDs, so per-event
+ * aggregation can index primitive arrays instead of boxing into per-tick maps.
+ * IDs are assigned on first sight and never reused; lookups of known packages are
+ * lock-free and allocation-free.
+ */
+public final class PackageIdDictionary {
+    public static final int UNKNOWN_ID = -1;
+
+    private static final PackageIdDictionary INSTANCE = new PackageIdDictionary();
+
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>(256);
+    private volatile String[] names = new String[256];
+    private volatile int size = 0;
+
+    private PackageIdDictionary() { }
+
+    public static PackageIdDictionary getInstance() {
+        return INSTANCE;
+    }
+
+    /** Returns the ID for {@code packageName}, assigning a new one if needed. */
+    public int idOf(String packageName) {
+        if (packageName == null) return UNKNOWN_ID;
+        Integer id = ids.get(packageName);
+        return id != null ? id : assign(packageName);
+    }
+
+    /** Returns the ID for {@code packageName} without assigning one. */
+    public int peekId(String packageName) {
+        if (packageName == null) return UNKNOWN_ID;
+        Integer id = ids.get(packageName);
+        return id != null ? id : UNKNOWN_ID;
+    }
+
+    public String nameOf(int id) {
+        String[] current = names;
+        return id >= 0 && id < current.length ? current[id] : null;
+    }
+
+    /** Upper bound (exclusive) of the IDs assigned so far. */
+    public int size() {
+        return size;
+    }
+
+    private synchronized int assign(String packageName) {
+        Integer existing = ids.get(packageName);
+        if (existing != null) return existing;
+
+        int id = size;
+        String[] current = names;
+        if (id == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+        }
+        current[id] = packageName;
+        names = current;
+        // Publish the name before the ID becomes visible to readers
+        size = id + 1;
+        ids.put(packageName, id);
+        return id;
+    }
+}
@@ -0,0 +1,124 @@
+// RecentEventBuffer.java
+// Location: app/src/main/java/com/neuropulse/app/features/RecentEventBuffer.java
+package com.neuropulse.app.features;
+
+import android.app.usage.UsageEvents;
+import android.app.usage.UsageStatsManager;
+
+/**
+ * Time-ordered ring buffer of recent UsageEvents, shared by the foreground lookup and the
+ * usage intensity counters fed through its {@link Listener}. Each refresh issues one
+ * queryEvents call covering only the time since the previous refresh; events older than
+ * the retention window fall off the tail. Packages are stored as
+ * {@link PackageIdDictionary} IDs.
+ *
+ * If more than {@code capacity} events arrive within the retention window the oldest ones
+ * are overwritten.
+ */
+public class RecentEventBuffer {
+
+    /** Sees every event read by a refresh, including warm-up events older than the retention. */
+    public interface Listener {
+        void onEvent(int packageId, int eventType, long timestamp);
+    }
+
+    private final UsageStatsManager usageStatsManager;
+    private final long retentionMillis;
+    private final long warmupMillis;
+    private final int mask;
+
+    private final long[] timestamps;
+    private final int[] eventTypes;
+    private final int[] packageIds;
+    private final PackageIdDictionary dictionary = PackageIdDictionary.getInstance();
+
+    private int head = 0; // index of the oldest entry
+    private int size = 0;
+    private long filledUntil = -1; // exclusive end of the last query
+    private Listener listener;
+
+    /**
+     * @param warmupMillis how far back the first refresh reads, so listeners that keep longer
+     *                     windows than the buffer itself start out populated
+     */
+    public RecentEventBuffer(UsageStatsManager usageStatsManager, long retentionMillis,
+                             long warmupMillis, int capacity) {
+        this.usageStatsManager = usageStatsManager;
+        this.retentionMillis = retentionMillis;
+        this.warmupMillis = Math.max(retentionMillis, warmupMillis);
+
+        int roundedCapacity = Integer.highestOneBit(Math.max(16, capacity - 1)) << 1;
+        this.mask = roundedCapacity - 1;
+        this.timestamps = new long[roundedCapacity];
+        this.eventTypes = new int[roundedCapacity];
+        this.packageIds = new int[roundedCapacity];
+    }
+
+    public synchronized void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Appends events newer than the previous refresh and drops those older than the
+     * retention window. Returns false if the events could not be queried.
+     */
+    public synchronized boolean refresh(long now) {
+        if (usageStatsManager == null) return false;
+
+        long oldestWanted = now - retentionMillis;
+        long queryStart = Math.max(filledUntil, now - warmupMillis);
+        if (now <= queryStart) return true;
+
+        UsageEvents events = usageStatsManager.queryEvents(queryStart, now);
+        if (events == null) return false;
+
+        UsageEvents.Event event = new UsageEvents.Event();
+        while (events.hasNextEvent()) {
+            events.getNextEvent(event);
+            long timestamp = event.getTimeStamp();
+            int eventType = event.getEventType();
+            int packageId = dictionary.idOf(event.getPackageName());
+
+            if (listener != null) listener.onEvent(packageId, eventType, timestamp);
+            if (timestamp >= oldestWanted) append(timestamp, eventType, packageId);
+        }
+        filledUntil = now;
+
+        evictOlderThan(oldestWanted);
+        return true;
+    }
+
+    /** Most recent package moved to the foreground at or after {@code since}, or null. */
+    public synchronized String findLastForeground(long since) {
+        for (int i = size - 1; i >= 0; i--) {
+            int slot = (head + i) & mask;
+            if (timestamps[slot] < since) break;
+            if (eventTypes[slot] == UsageEvents.Event.MOVE_TO_FOREGROUND) {
+                return dictionary.nameOf(packageIds[slot]);
+            }
+        }
+        return null;
+    }
+
+    private void append(long timestamp, int eventType, int packageId) {
+        int slot;
+        if (size == timestamps.length) {
+            // Full: overwrite the oldest entry
+            slot = head;
+            head = (head + 1) & mask;
+        } else {
+            slot = (head + size) & mask;
+            size++;
+        }
+        timestamps[slot] = timestamp;
+        eventTypes[slot] = eventType;
+        packageIds[slot] = packageId;
+    }
+
+    private void evictOlderThan(long cutoff) {
+        while (size > 0 && timestamps[head] < cutoff) {
+            head = (head + 1) & mask;
+            size--;
+        }
+    }
+}
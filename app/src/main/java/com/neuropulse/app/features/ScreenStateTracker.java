@@ -0,0 +1,87 @@
+// ScreenStateTracker.java
+// Location: app/src/main/java/com/neuropulse/app/features/ScreenStateTracker.java
+package com.neuropulse.app.features;
+
+/**
+ * Process-wide record of screen state and unlocks, fed by
+ * {@link com.neuropulse.app.receivers.ScreenStateReceiver}. Unlock times are kept in a
+ * fixed ring so the count for any recent window is answered without allocation; windows
+ * reaching further back than {@link #UNLOCK_HISTORY} unlocks saturate at that count.
+ */
+public final class ScreenStateTracker {
+    public static final int UNLOCK_HISTORY = 1024;
+
+    private static final ScreenStateTracker INSTANCE = new ScreenStateTracker();
+
+    private final long[] unlockTimes = new long[UNLOCK_HISTORY];
+    private int unlockCount = 0; // total since process start
+    private volatile boolean interactive = true;
+    private volatile long lastScreenOff = 0;
+    private volatile long trackingSince = 0;
+
+    private ScreenStateTracker() { }
+
+    public static ScreenStateTracker getInstance() {
+        return INSTANCE;
+    }
+
+    /** Called when the receiver is registered; unlocks before this were not seen. */
+    public void onTrackingStarted(long timestamp) {
+        trackingSince = timestamp;
+    }
+
+    /** When the current receiver registration started, or 0 if none has. */
+    public long getTrackingSince() {
+        return trackingSince;
+    }
+
+    public void onScreenOn() {
+        interactive = true;
+    }
+
+    public synchronized void onScreenOff(long timestamp) {
+        interactive = false;
+        lastScreenOff = timestamp;
+    }
+
+    /**
+     * Records an unlock; returns false if one was already recorded since the screen last
+     * turned off (some devices send USER_PRESENT even without a lock screen).
+     */
+    public synchronized boolean onUnlock(long timestamp) {
+        interactive = true;
+        if (unlockCount > 0 && unlockTimes[(unlockCount - 1) % UNLOCK_HISTORY] >= lastScreenOff) {
+            return false;
+        }
+        unlockTimes[unlockCount % UNLOCK_HISTORY] = timestamp;
+        unlockCount++;
+        return true;
+    }
+
+    public boolean isInteractive() {
+        return interactive;
+    }
+
+    /** Time the screen last turned off, or 0 if it has not since tracking started. */
+    public long getLastScreenOff() {
+        return lastScreenOff;
+    }
+
+    /** Unlocks at or after {@code since}. */
+    public int countUnlocksSince(long since) {
+        return countUnlocksBetween(since, Long.MAX_VALUE);
+    }
+
+    /** Unlocks in [{@code from}, {@code to}]. */
+    public synchronized int countUnlocksBetween(long from, long to) {
+        int retained = Math.min(unlockCount, UNLOCK_HISTORY);
+        int count = 0;
+        // Newest first; unlock times are monotonic so stop at the first older one
+        for (int i = 1; i <= retained; i++) {
+            long time = unlockTimes[(unlockCount - i) % UNLOCK_HISTORY];
+            if (time < from) break;
+            if (time <= to) count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,107 @@
+// ScrollCounter.java
+// Location: app/src/main/java/com/neuropulse/app/features/ScrollCounter.java
+package com.neuropulse.app.features;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Process-wide per-package scroll counters written by {@code ScrollCaptureService}.
+ * Counters are monotonic atomic cells indexed by {@link PackageIdDictionary} ID and
+ * allocated in fixed-size chunks, so recording a scroll for a known package is a
+ * dictionary lookup plus one atomic increment: no lock and no allocation on the
+ * accessibility thread. Consumers read deltas through their own {@link Cursor}, so
+ * several extractors can drain the same counters without stealing each other's counts.
+ */
+public final class ScrollCounter {
+    private static final int CHUNK_BITS = 8;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int MAX_CHUNKS = 256; // 65536 packages
+
+    private static final ScrollCounter INSTANCE = new ScrollCounter();
+
+    private final AtomicReferenceArray<AtomicLongArray> chunks = new AtomicReferenceArray<>(MAX_CHUNKS);
+    private final PackageIdDictionary dictionary = PackageIdDictionary.getInstance();
+    private volatile long captureSince = 0;
+
+    private ScrollCounter() { }
+
+    public static ScrollCounter getInstance() {
+        return INSTANCE;
+    }
+
+    public void record(String packageName) {
+        int id = dictionary.idOf(packageName);
+        if (id < 0 || id >= MAX_CHUNKS * CHUNK_SIZE) return;
+        chunkFor(id).incrementAndGet(id & CHUNK_MASK);
+    }
+
+    /** Called when the capture service connects; scrolls before this were not seen. */
+    public void onCaptureStarted(long timestamp) {
+        captureSince = timestamp;
+    }
+
+    /** When the capture service last connected, or 0 if it has not in this process. */
+    public long getCaptureSince() {
+        return captureSince;
+    }
+
+    /** Scrolls recorded for {@code packageName} since process start. */
+    public long getCount(String packageName) {
+        return countOf(dictionary.peekId(packageName));
+    }
+
+    /** A cursor that only sees scrolls recorded after it was created. */
+    public Cursor newCursor() {
+        return new Cursor();
+    }
+
+    private long countOf(int id) {
+        if (id < 0 || id >= MAX_CHUNKS * CHUNK_SIZE) return 0L;
+        AtomicLongArray chunk = chunks.get(id >>> CHUNK_BITS);
+        return chunk != null ? chunk.get(id & CHUNK_MASK) : 0L;
+    }
+
+    private AtomicLongArray chunkFor(int id) {
+        int index = id >>> CHUNK_BITS;
+        AtomicLongArray chunk = chunks.get(index);
+        if (chunk == null) {
+            // Losing the race just discards our copy; one allocation per 256 packages
+            chunks.compareAndSet(index, null, new AtomicLongArray(CHUNK_SIZE));
+            chunk = chunks.get(index);
+        }
+        return chunk;
+    }
+
+    /** Per-consumer read position over the counters. Not thread-safe. */
+    public final class Cursor {
+        private long[] seen = new long[0];
+
+        private Cursor() {
+            drain();
+        }
+
+        /** Returns the number of scrolls across all packages since the previous drain. */
+        public long drain() {
+            int limit = Math.min(dictionary.size(), MAX_CHUNKS * CHUNK_SIZE);
+            if (seen.length < limit) {
+                seen = Arrays.copyOf(seen, Math.max(limit, seen.length * 2));
+            }
+
+            long total = 0;
+            for (int base = 0; base < limit; base += CHUNK_SIZE) {
+                AtomicLongArray chunk = chunks.get(base >>> CHUNK_BITS);
+                if (chunk == null) continue;
+                int end = Math.min(CHUNK_SIZE, limit - base);
+                for (int i = 0; i < end; i++) {
+                    long count = chunk.get(i);
+                    total += count - seen[base + i];
+                    seen[base + i] = count;
+                }
+            }
+            return total;
+        }
+    }
+}
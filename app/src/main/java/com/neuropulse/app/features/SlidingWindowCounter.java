@@ -0,0 +1,108 @@
+// SlidingWindowCounter.java
+// Location: app/src/main/java/com/neuropulse/app/features/SlidingWindowCounter.java
+package com.neuropulse.app.features;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time-bucketed per-package event counter answering events-per-minute over several window
+ * lengths at once. Each package keeps a ring of 30-second buckets spanning the longest
+ * window plus a running sum per window; advancing time subtracts the buckets that fall
+ * out of each window, so both updates and queries are O(1) amortized.
+ *
+ * Packages are indexed by {@link PackageIdDictionary} ID. Not thread-safe; callers
+ * serialize access.
+ */
+public class SlidingWindowCounter {
+    public static final long BUCKET_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    public static final int WINDOW_5_MIN = 0;
+    public static final int WINDOW_30_MIN = 1;
+    public static final int WINDOW_2_HOURS = 2;
+
+    // Window lengths in buckets, indexed by the WINDOW_* constants
+    private static final int[] WINDOW_BUCKETS = {10, 60, 240};
+    private static final int RING_SIZE = 240;
+    private static final int WINDOW_COUNT = WINDOW_BUCKETS.length;
+
+    private int[][] rings = new int[64][];
+    private int[] windowSums = new int[64 * WINDOW_COUNT];
+    private long[] headBuckets = new long[64]; // newest bucket index covered by each ring
+
+    /** Longest window covered, useful for warming the counter from history. */
+    public static long maxWindowMillis() {
+        return RING_SIZE * BUCKET_MILLIS;
+    }
+
+    public void record(int packageId, long timestamp) {
+        if (packageId < 0) return;
+        ensureCapacity(packageId);
+
+        long bucket = timestamp / BUCKET_MILLIS;
+        int[] ring = rings[packageId];
+        if (ring == null) {
+            ring = new int[RING_SIZE];
+            rings[packageId] = ring;
+            headBuckets[packageId] = bucket;
+        }
+
+        long head = headBuckets[packageId];
+        if (bucket > head) {
+            advance(packageId, bucket);
+            head = bucket;
+        } else if (head - bucket >= RING_SIZE) {
+            return; // older than the longest window
+        }
+
+        ring[(int) (bucket % RING_SIZE)]++;
+        int base = packageId * WINDOW_COUNT;
+        for (int w = 0; w < WINDOW_COUNT; w++) {
+            if (head - bucket < WINDOW_BUCKETS[w]) windowSums[base + w]++;
+        }
+    }
+
+    /** Events for the package within the window ending at {@code now}. */
+    public int count(int packageId, int window, long now) {
+        if (packageId < 0 || packageId >= rings.length || rings[packageId] == null) return 0;
+        long bucket = now / BUCKET_MILLIS;
+        if (bucket > headBuckets[packageId]) advance(packageId, bucket);
+        return windowSums[packageId * WINDOW_COUNT + window];
+    }
+
+    /** Events per minute for the package within the window ending at {@code now}. */
+    public float ratePerMinute(int packageId, int window, long now) {
+        float windowMinutes = WINDOW_BUCKETS[window] * BUCKET_MILLIS / 60_000f;
+        return count(packageId, window, now) / windowMinutes;
+    }
+
+    private void advance(int packageId, long toBucket) {
+        int[] ring = rings[packageId];
+        int base = packageId * WINDOW_COUNT;
+        long head = headBuckets[packageId];
+
+        if (toBucket - head >= RING_SIZE) {
+            // Idle longer than the longest window: nothing survives
+            Arrays.fill(ring, 0);
+            Arrays.fill(windowSums, base, base + WINDOW_COUNT, 0);
+        } else {
+            for (long entering = head + 1; entering <= toBucket; entering++) {
+                for (int w = 0; w < WINDOW_COUNT; w++) {
+                    long leaving = entering - WINDOW_BUCKETS[w];
+                    windowSums[base + w] -= ring[(int) (leaving % RING_SIZE)];
+                }
+                // The slot being reused held the bucket that just left the longest window
+                ring[(int) (entering % RING_SIZE)] = 0;
+            }
+        }
+        headBuckets[packageId] = toBucket;
+    }
+
+    private void ensureCapacity(int packageId) {
+        if (packageId < rings.length) return;
+        int capacity = Math.max(packageId + 1, rings.length * 2);
+        rings = Arrays.copyOf(rings, capacity);
+        windowSums = Arrays.copyOf(windowSums, capacity * WINDOW_COUNT);
+        headBuckets = Arrays.copyOf(headBuckets, capacity);
+    }
+}
@@ -0,0 +1,309 @@
+// SpikeDetector.java
+// Location: app/src/main/java/com/neuropulse/app/features/SpikeDetector.java
+package com.neuropulse.app.features;
+
+import java.util.ArrayList;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Online change-point detection of engagement bursts ("dopamine spikes") over three live
+ * streams: interaction events in the foreground app, app switches and notifications acted
+ * upon. Each stream is counted in {@link #BIN}-wide bins; every closed bin is standardized
+ * against the stream's exponentially weighted baseline and fed to a one-sided CUSUM. An
+ * episode starts when any stream's CUSUM crosses {@link #THRESHOLD} and ends once every
+ * stream has been back at its baseline for {@link #QUIET_BINS} bins, or after an idle gap.
+ *
+ * Only the foreground app produces interaction events, so the interaction stream is that
+ * app's event rate and episodes are attributed to it. Interactions are not reported one by
+ * one: the accessibility service only bumps {@link ScrollCounter}, and each monitoring tick
+ * ({@link #advanceTo}) spreads the scrolls since the previous tick over the bins it spans.
+ * Listeners are called after the detector's lock is released, in episode order.
+ */
+public final class SpikeDetector implements ForegroundSessionizer.SessionListener {
+    public static final int CHANNEL_INTERACTION = 0;
+    public static final int CHANNEL_APP_SWITCH = 1;
+    public static final int CHANNEL_NOTIFICATION_RESPONSE = 2;
+    private static final int CHANNELS = 3;
+
+    public static final long BIN = TimeUnit.SECONDS.toMillis(10);
+    /** CUSUM decision threshold, in baseline standard deviations. */
+    public static final float THRESHOLD = 5f;
+    private static final float SLACK = 0.5f;            // allowance per bin before drift accumulates
+    private static final double BASELINE_ALPHA = 0.02;  // about the last 8 minutes of active use
+    private static final double MIN_VARIANCE = 1.0;     // counts are at least Poisson-noisy
+    private static final int WARMUP_BINS = 30;          // 5 minutes of baseline before alerting
+    private static final int MAX_CATCHUP_BINS = 6;      // longer gaps are idle time, not zero rates
+    /** Consecutive baseline-level bins that end an episode; a CUSUM alone drains slowly after a big burst. */
+    public static final int QUIET_BINS = 3;
+    private static final int RESPONSE_DEDUP = 16;
+
+    public interface SpikeListener {
+        void onSpikeStart(String packageName, int channel, float magnitude, long startTime);
+
+        void onSpikeEnd(SpikeEpisode episode);
+    }
+
+    public static final class SpikeEpisode {
+        public final String packageName;
+        public final long startTime;
+        public final long endTime;
+        /** Peak CUSUM over {@link #THRESHOLD}; 1 is the detection level. */
+        public final float peakMagnitude;
+        public final int dominantChannel;
+
+        SpikeEpisode(String packageName, long startTime, long endTime, float peakMagnitude, int dominantChannel) {
+            this.packageName = packageName;
+            this.startTime = startTime;
+            this.endTime = endTime;
+            this.peakMagnitude = peakMagnitude;
+            this.dominantChannel = dominantChannel;
+        }
+
+        public long getDuration() {
+            return endTime - startTime;
+        }
+    }
+
+    private static final SpikeDetector INSTANCE = new SpikeDetector();
+
+    private final CopyOnWriteArrayList<SpikeListener> listeners = new CopyOnWriteArrayList<>();
+    // Boundaries crossed under the lock; an episode with endTime 0 is a start
+    private final ArrayList<SpikeEpisode> pendingEvents = new ArrayList<>();
+    private final Object dispatchLock = new Object();
+    private final ScrollCounter.Cursor interactions;
+    private long lastFoldTime = 0;
+
+    private long binStart = -1;
+    private final int[] binCounts = new int[CHANNELS];
+    private final double[] baselineMean = new double[CHANNELS];
+    private final double[] baselineVariance = new double[CHANNELS];
+    private final float[] cusum = new float[CHANNELS];
+    private long baselineBins = 0;
+
+    private int foregroundPackageId = PackageIdDictionary.UNKNOWN_ID;
+    private long lastOpenTime = 0;
+    private final long[] recentResponses = new long[RESPONSE_DEDUP];
+    private int responseCursor = 0;
+
+    private boolean inSpike = false;
+    private int spikePackageId;
+    private long spikeStart;
+    private float spikePeak;
+    private int spikeChannel;
+    private int quietBins;
+    private long lastSpikeEnd = 0;
+
+    private SpikeDetector() {
+        this(ScrollCounter.getInstance().newCursor());
+    }
+
+    // Package-private for tests; the app shares getInstance()
+    SpikeDetector(ScrollCounter.Cursor interactions) {
+        this.interactions = interactions;
+    }
+
+    public static SpikeDetector getInstance() {
+        return INSTANCE;
+    }
+
+    public void addListener(SpikeListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(SpikeListener listener) {
+        listeners.remove(listener);
+    }
+
+    // ---------------- Streams ----------------
+
+    /**
+     * A notification acted upon. Every feature extractor's response index reports here,
+     * so recent (package, post time) pairs are remembered to count each response once.
+     */
+    public void onNotificationResponse(int packageId, long postTime, long responseTime) {
+        synchronized (this) {
+            long key = (long) packageId * 31 + postTime;
+            for (long recent : recentResponses) {
+                if (recent == key) return;
+            }
+            recentResponses[responseCursor++ % RESPONSE_DEDUP] = key;
+            advance(responseTime);
+            binCounts[CHANNEL_NOTIFICATION_RESPONSE]++;
+        }
+        dispatchPending();
+    }
+
+    @Override
+    public void onSessionOpened(int packageId, long startTime) {
+        synchronized (this) {
+            // Several sessionizers report the same opens
+            if (startTime <= lastOpenTime) return;
+            lastOpenTime = startTime;
+            advance(startTime);
+            foregroundPackageId = packageId;
+            binCounts[CHANNEL_APP_SWITCH]++;
+        }
+        dispatchPending();
+    }
+
+    @Override
+    public void onSessionClosed(ForegroundSessionizer.ForegroundSession session) {
+        // Opens carry the switch
+    }
+
+    /**
+     * The monitoring tick: folds the scrolls recorded since the previous tick into the
+     * interaction stream and closes bins up to {@code now}, so an episode can also end
+     * while no events arrive.
+     */
+    public void advanceTo(long now) {
+        synchronized (this) {
+            foldInteractions(interactions.drain(), now);
+        }
+        dispatchPending();
+    }
+
+    // ---------------- Queries ----------------
+
+    public synchronized boolean isInSpike() {
+        return inSpike;
+    }
+
+    /** Whether an episode was active at any point since {@code since}. */
+    public synchronized boolean hasSpikeSince(long since) {
+        return inSpike || lastSpikeEnd >= since;
+    }
+
+    // ---------------- Detection ----------------
+
+    // Spreads count evenly over (lastFoldTime, now]; the exact times are unknown, and dumping
+    // a 15 s tick's scrolls into one 10 s bin would alternate full and empty bins
+    void foldInteractions(long count, long now) {
+        long from = Math.max(lastFoldTime, binStart);
+        lastFoldTime = now;
+        if (count == 0 || binStart < 0 || from >= now || now - from > MAX_CATCHUP_BINS * BIN) {
+            advance(now);
+            binCounts[CHANNEL_INTERACTION] += (int) count;
+            return;
+        }
+        long span = now - from;
+        long assigned = 0;
+        for (long t = from; ; t = binStart + BIN) {
+            advance(t);
+            long end = Math.min(now, binStart + BIN);
+            long upTo = end == now ? count : count * (end - from) / span;
+            binCounts[CHANNEL_INTERACTION] += (int) (upTo - assigned);
+            assigned = upTo;
+            if (end == now) break;
+        }
+        advance(now);
+    }
+
+    // Late events (streams drained on a timer) land in the current bin rather than reopen old ones
+    private void advance(long timestamp) {
+        if (binStart < 0) {
+            binStart = timestamp - timestamp % BIN;
+            return;
+        }
+        long elapsed = (timestamp - binStart) / BIN;
+        if (elapsed <= 0) return;
+
+        if (elapsed > MAX_CATCHUP_BINS) {
+            // Idle gap: the current bin is real, the empty stretch after it is not
+            closeBin(binStart + BIN);
+            resetCusum(binStart + BIN);
+        } else {
+            for (int i = 0; i < elapsed; i++) {
+                closeBin(binStart + (i + 1) * BIN);
+            }
+        }
+        binStart = timestamp - timestamp % BIN;
+    }
+
+    private void closeBin(long binEnd) {
+        baselineBins++;
+        boolean alerting = baselineBins > WARMUP_BINS;
+        float peak = 0f;
+        int peakChannel = CHANNEL_INTERACTION;
+        boolean quiet = true;
+
+        for (int c = 0; c < CHANNELS; c++) {
+            int count = binCounts[c];
+            binCounts[c] = 0;
+
+            double z = (count - baselineMean[c]) / Math.sqrt(Math.max(baselineVariance[c], MIN_VARIANCE));
+            cusum[c] = alerting ? Math.max(0f, cusum[c] + (float) z - SLACK) : 0f;
+            if (z > SLACK) quiet = false;
+            if (cusum[c] > peak) {
+                peak = cusum[c];
+                peakChannel = c;
+            }
+            // Bins inside an episode would teach the baseline that bursts are normal
+            if (!inSpike) updateBaseline(c, count);
+        }
+
+        if (!inSpike && peak > THRESHOLD) {
+            inSpike = true;
+            spikePackageId = foregroundPackageId;
+            spikeStart = binEnd - BIN;
+            spikePeak = peak;
+            spikeChannel = peakChannel;
+            quietBins = 0;
+            pendingEvents.add(new SpikeEpisode(PackageIdDictionary.getInstance().nameOf(spikePackageId),
+                    spikeStart, 0, peak / THRESHOLD, peakChannel));
+        } else if (inSpike) {
+            if (peak > spikePeak) {
+                spikePeak = peak;
+                spikeChannel = peakChannel;
+            }
+            quietBins = quiet ? quietBins + 1 : 0;
+            if (peak == 0f || quietBins >= QUIET_BINS) resetCusum(binEnd);
+        }
+    }
+
+    private void updateBaseline(int channel, int count) {
+        // Plain averaging until the weight reaches BASELINE_ALPHA, so the start is not biased
+        double alpha = Math.max(BASELINE_ALPHA, 1.0 / baselineBins);
+        double diff = count - baselineMean[channel];
+        double increment = alpha * diff;
+        baselineMean[channel] += increment;
+        baselineVariance[channel] = (1 - alpha) * (baselineVariance[channel] + diff * increment);
+    }
+
+    private void resetCusum(long time) {
+        for (int c = 0; c < CHANNELS; c++) {
+            cusum[c] = 0f;
+        }
+        if (inSpike) endSpike(time);
+    }
+
+    private void endSpike(long time) {
+        inSpike = false;
+        lastSpikeEnd = time;
+        pendingEvents.add(new SpikeEpisode(PackageIdDictionary.getInstance().nameOf(spikePackageId),
+                spikeStart, time, spikePeak / THRESHOLD, spikeChannel));
+    }
+
+    // Called without the detector's lock; dispatchLock keeps concurrent callers in order
+    private void dispatchPending() {
+        synchronized (dispatchLock) {
+            SpikeEpisode[] events;
+            synchronized (this) {
+                if (pendingEvents.isEmpty()) return;
+                events = pendingEvents.toArray(new SpikeEpisode[0]);
+                pendingEvents.clear();
+            }
+            for (SpikeEpisode event : events) {
+                for (SpikeListener listener : listeners) {
+                    if (event.endTime == 0) {
+                        listener.onSpikeStart(event.packageName, event.dominantChannel,
+                                event.peakMagnitude, event.startTime);
+                    } else {
+                        listener.onSpikeEnd(event);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,241 @@
+// UsageEventIngestor.java
+// Location: app/src/main/java/com/neuropulse/app/features/UsageEventIngestor.java
+package com.neuropulse.app.features;
+
+import android.app.usage.UsageEvents;
+import android.app.usage.UsageStatsManager;
+import android.content.Context;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Incremental UsageEvents reader. Keeps a high-water mark for the current window and
+ * only queries events newer than it, folding them into running per-package aggregates.
+ * Per-call cost depends on the number of new events, not on the length of the window.
+ *
+ * Aggregates are primitive arrays indexed by {@link PackageIdDictionary} IDs, so the
+ * per-event loop does not box or allocate.
+ *
+ * An ingestor given a state name persists its watermark and aggregates, so a restarted
+ * process that resumes the same window does not have to re-read it from the start. Each
+ * owner needs its own name: ingestors track different windows and must not overwrite one
+ * another's state.
+ */
+public class UsageEventIngestor {
+    private static final String TAG = "UsageEventIngestor";
+    private static final String STATE_FILE_PREFIX = "usage_ingest_";
+    private static final int STATE_VERSION = 1;
+    private static final int INITIAL_CAPACITY = 64;
+
+    /** Receives every newly ingested event; returns true if the event marks a binge. */
+    public interface UsageEventListener {
+        boolean onUsageEvent(String packageName, int eventType, long timestamp);
+    }
+
+    private final UsageStatsManager usageStatsManager;
+    private final File stateFile; // null when not persisted
+    private final PackageIdDictionary packageIds = PackageIdDictionary.getInstance();
+
+    // Per-package aggregates for the current window, indexed by package ID
+    private int[] eventCounts = new int[INITIAL_CAPACITY];
+    private int[] foregroundCounts = new int[INITIAL_CAPACITY];
+    private long[] firstEventTimes = new long[INITIAL_CAPACITY];
+    private long[] lastEventTimes = new long[INITIAL_CAPACITY];
+
+    private long windowStart = -1;
+    private long watermark = -1; // exclusive upper bound of everything already ingested
+    private int totalEvents;
+    private int totalForeground;
+    private boolean bingeDetected;
+    private boolean dirty;
+
+    /** {@code stateName} names this owner's state file; null keeps the state in memory only. */
+    public UsageEventIngestor(Context context, UsageStatsManager usageStatsManager, String stateName) {
+        this.usageStatsManager = usageStatsManager;
+        this.stateFile = stateName != null
+                ? new File(context.getNoBackupFilesDir(), STATE_FILE_PREFIX + stateName + ".bin")
+                : null;
+        restoreState();
+    }
+
+    /**
+     * Brings the aggregates for [windowStart, windowEnd) up to date. Starting a new window
+     * discards the previous aggregates. Returns false if no events could be read.
+     */
+    public synchronized boolean ingest(long windowStart, long windowEnd, UsageEventListener listener) {
+        if (usageStatsManager == null) return false;
+
+        if (windowStart != this.windowStart || watermark < windowStart) {
+            resetWindow(windowStart);
+        }
+        if (windowEnd <= watermark) return true;
+
+        UsageEvents events = usageStatsManager.queryEvents(watermark, windowEnd);
+        if (events == null) return false;
+
+        int newEvents = 0;
+        UsageEvents.Event event = new UsageEvents.Event();
+        while (events.hasNextEvent()) {
+            events.getNextEvent(event);
+            String packageName = event.getPackageName();
+            int eventType = event.getEventType();
+            long timestamp = event.getTimeStamp();
+
+            int id = packageIds.idOf(packageName);
+            if (id >= eventCounts.length) grow(id + 1);
+
+            if (eventCounts[id] == 0) firstEventTimes[id] = timestamp;
+            eventCounts[id]++;
+            lastEventTimes[id] = timestamp;
+            totalEvents++;
+
+            if (eventType == UsageEvents.Event.MOVE_TO_FOREGROUND) {
+                foregroundCounts[id]++;
+                totalForeground++;
+            }
+
+            if (listener != null && listener.onUsageEvent(packageName, eventType, timestamp)) {
+                bingeDetected = true;
+            }
+            newEvents++;
+        }
+
+        // queryEvents treats the end time as exclusive, so the next call starts exactly here
+        watermark = windowEnd;
+        if (newEvents > 0) {
+            dirty = true;
+            persistState();
+        }
+        return true;
+    }
+
+    public synchronized String getTopPackage() {
+        int topId = PackageIdDictionary.UNKNOWN_ID;
+        int topCount = 0;
+        for (int id = 0; id < eventCounts.length; id++) {
+            if (eventCounts[id] > topCount) {
+                topCount = eventCounts[id];
+                topId = id;
+            }
+        }
+        return topId != PackageIdDictionary.UNKNOWN_ID ? packageIds.nameOf(topId) : null;
+    }
+
+    public synchronized int getTotalEvents() {
+        return totalEvents;
+    }
+
+    public synchronized int getTotalForeground() {
+        return totalForeground;
+    }
+
+    public synchronized boolean isBingeDetected() {
+        return bingeDetected;
+    }
+
+    public synchronized long getWindowStart() {
+        return windowStart;
+    }
+
+    public synchronized long getWatermark() {
+        return watermark;
+    }
+
+    private void grow(int minCapacity) {
+        int capacity = Math.max(minCapacity, eventCounts.length * 2);
+        eventCounts = Arrays.copyOf(eventCounts, capacity);
+        foregroundCounts = Arrays.copyOf(foregroundCounts, capacity);
+        firstEventTimes = Arrays.copyOf(firstEventTimes, capacity);
+        lastEventTimes = Arrays.copyOf(lastEventTimes, capacity);
+    }
+
+    private void resetWindow(long newWindowStart) {
+        Arrays.fill(eventCounts, 0);
+        Arrays.fill(foregroundCounts, 0);
+        Arrays.fill(firstEventTimes, 0L);
+        Arrays.fill(lastEventTimes, 0L);
+        windowStart = newWindowStart;
+        watermark = newWindowStart;
+        totalEvents = 0;
+        totalForeground = 0;
+        bingeDetected = false;
+        dirty = true;
+    }
+
+    // ---------------- Persistence ----------------
+
+    private void persistState() {
+        if (!dirty || stateFile == null) return;
+        File tmp = new File(stateFile.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(STATE_VERSION);
+            out.writeLong(windowStart);
+            out.writeLong(watermark);
+            out.writeBoolean(bingeDetected);
+            int count = 0;
+            for (int eventCount : eventCounts) {
+                if (eventCount > 0) count++;
+            }
+            out.writeInt(count);
+            for (int id = 0; id < eventCounts.length; id++) {
+                if (eventCounts[id] == 0) continue;
+                out.writeUTF(packageIds.nameOf(id));
+                out.writeInt(eventCounts[id]);
+                out.writeInt(foregroundCounts[id]);
+                out.writeLong(firstEventTimes[id]);
+                out.writeLong(lastEventTimes[id]);
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to persist ingest state", e);
+            return;
+        }
+        if (tmp.renameTo(stateFile)) {
+            dirty = false;
+        } else {
+            Log.w(TAG, "Failed to replace ingest state file");
+        }
+    }
+
+    private void restoreState() {
+        if (stateFile == null || !stateFile.exists()) return;
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(stateFile)))) {
+            if (in.readInt() != STATE_VERSION) return;
+            long storedWindowStart = in.readLong();
+            long storedWatermark = in.readLong();
+            boolean storedBinge = in.readBoolean();
+            int count = in.readInt();
+
+            int events = 0;
+            int foreground = 0;
+            for (int i = 0; i < count; i++) {
+                int id = packageIds.idOf(in.readUTF());
+                if (id >= eventCounts.length) grow(id + 1);
+                eventCounts[id] = in.readInt();
+                foregroundCounts[id] = in.readInt();
+                firstEventTimes[id] = in.readLong();
+                lastEventTimes[id] = in.readLong();
+                events += eventCounts[id];
+                foreground += foregroundCounts[id];
+            }
+
+            windowStart = storedWindowStart;
+            watermark = storedWatermark;
+            bingeDetected = storedBinge;
+            totalEvents = events;
+            totalForeground = foreground;
+        } catch (IOException e) {
+            Log.w(TAG, "Discarding unreadable ingest state", e);
+        }
+    }
+}
@@ -0,0 +1,233 @@
+// UserBaselineStats.java
+// Location: app/src/main/java/com/neuropulse/app/features/UserBaselineStats.java
+package com.neuropulse.app.features;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.neuropulse.app.utils.MaintenanceScheduler;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This user's own baseline per app category: streaming statistics over every closed
+ * foreground session for session length, unlock rate and scroll intensity. Each session
+ * updates a lifetime Welford mean/variance and an exponentially weighted mean/variance in
+ * O(1); z-scores are taken against the weighted pair so the baseline follows gradual
+ * changes in habit. Everything fits in a few hundred bytes on disk.
+ *
+ * Several sessionizers may report the same sessions (one per feature extractor), so
+ * sessions ending at or before the last one counted are ignored. Sessions replayed from
+ * before the process started only add their duration: the unlock and scroll trackers are
+ * in memory and did not see them.
+ */
+public class UserBaselineStats implements ForegroundSessionizer.SessionListener {
+    private static final String TAG = "UserBaselineStats";
+    private static final String STATS_FILE = "user_baseline.bin";
+    private static final int STATS_VERSION = 1;
+    private static final long PERSIST_INTERVAL_MINUTES = 5;
+
+    public static final int METRIC_DURATION = 0;    // foreground session length, minutes
+    public static final int METRIC_UNLOCK_RATE = 1; // unlocks per hour around the session
+    public static final int METRIC_INTENSITY = 2;   // scrolls per minute
+    public static final int METRIC_COUNT = 3;
+    public static final int CATEGORY_COUNT = 10;
+
+    /** Sessions before a baseline is trusted; z-scores are 0 until then. */
+    public static final int MIN_SAMPLES = 20;
+    private static final double EWMA_ALPHA = 1.0 / MIN_SAMPLES;
+    private static final float MAX_Z = 8f;
+    private static final long MIN_SESSION = TimeUnit.SECONDS.toMillis(5); // glances carry no habit signal
+    private static final long UNLOCK_WINDOW = TimeUnit.HOURS.toMillis(1);
+
+    private static UserBaselineStats instance;
+
+    // Indexed [category * METRIC_COUNT + metric]
+    private final int[] count = new int[CATEGORY_COUNT * METRIC_COUNT];
+    private final double[] mean = new double[CATEGORY_COUNT * METRIC_COUNT];
+    private final double[] m2 = new double[CATEGORY_COUNT * METRIC_COUNT];
+    private final double[] ewMean = new double[CATEGORY_COUNT * METRIC_COUNT];
+    private final double[] ewVariance = new double[CATEGORY_COUNT * METRIC_COUNT];
+
+    private final AppRiskRegistry riskRegistry;
+    private final File statsFile;
+    private long lastSessionEnd = 0;
+    private int openPackageId = PackageIdDictionary.UNKNOWN_ID;
+    private long openScrolls;
+    private boolean dirty = false;
+
+    private UserBaselineStats(Context context) {
+        this.riskRegistry = AppRiskRegistry.getInstance(context);
+        this.statsFile = new File(context.getNoBackupFilesDir(), STATS_FILE);
+
+        // A few hundred bytes; read before any session can be counted
+        restore();
+        MaintenanceScheduler.getInstance().schedule(this::persistIfDirty,
+                PERSIST_INTERVAL_MINUTES, PERSIST_INTERVAL_MINUTES, TimeUnit.MINUTES);
+    }
+
+    public static synchronized UserBaselineStats getInstance(Context context) {
+        if (instance == null) {
+            instance = new UserBaselineStats(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    // ---------------- Session stream ----------------
+
+    @Override
+    public synchronized void onSessionOpened(int packageId, long startTime) {
+        if (startTime <= lastSessionEnd) return;
+        long captureSince = ScrollCounter.getInstance().getCaptureSince();
+        if (captureSince == 0 || startTime < captureSince) return; // replayed or not captured
+        openPackageId = packageId;
+        // Events arrive in batches, so this may already include a few of the session's scrolls
+        openScrolls = ScrollCounter.getInstance().getCount(PackageIdDictionary.getInstance().nameOf(packageId));
+    }
+
+    @Override
+    public synchronized void onSessionClosed(ForegroundSessionizer.ForegroundSession session) {
+        if (session.endTime <= lastSessionEnd) return;
+        lastSessionEnd = session.endTime;
+        long duration = session.getDuration();
+        if (duration < MIN_SESSION || session.packageName == null) return;
+
+        int category = categoryIndex(riskRegistry.getCategory(session.packageName));
+        float minutes = duration / 60_000f;
+        record(category, METRIC_DURATION, minutes);
+        // Only once the whole window was tracked; a partial one reads as fewer unlocks
+        ScreenStateTracker screenState = ScreenStateTracker.getInstance();
+        long windowStart = session.endTime - UNLOCK_WINDOW;
+        long trackingSince = screenState.getTrackingSince();
+        if (trackingSince > 0 && windowStart >= trackingSince) {
+            record(category, METRIC_UNLOCK_RATE, screenState.countUnlocksBetween(windowStart, session.endTime)
+                    * (float) TimeUnit.HOURS.toMillis(1) / UNLOCK_WINDOW);
+        }
+        if (session.packageId == openPackageId) {
+            long scrolls = ScrollCounter.getInstance().getCount(session.packageName) - openScrolls;
+            record(category, METRIC_INTENSITY, Math.max(0L, scrolls) / minutes);
+        }
+        openPackageId = PackageIdDictionary.UNKNOWN_ID;
+    }
+
+    // ---------------- Queries ----------------
+
+    /**
+     * How unusual {@code value} is for this user in {@code category}, in standard
+     * deviations from their recent norm; 0 while the baseline is still forming.
+     */
+    public synchronized float zScore(int category, int metric, float value) {
+        int slot = categoryIndex(category) * METRIC_COUNT + metric;
+        if (count[slot] < MIN_SAMPLES) return 0f;
+        double variance = ewVariance[slot];
+        if (variance < 1e-9) return 0f;
+        double z = (transform(metric, value) - ewMean[slot]) / Math.sqrt(variance);
+        return (float) Math.max(-MAX_Z, Math.min(MAX_Z, z));
+    }
+
+    /** Lifetime mean, in the metric's unit (a geometric mean for durations). */
+    public synchronized float getMean(int category, int metric) {
+        double value = mean[categoryIndex(category) * METRIC_COUNT + metric];
+        return (float) (metric == METRIC_DURATION ? Math.expm1(value) : value);
+    }
+
+    public synchronized int getSampleCount(int category, int metric) {
+        return count[categoryIndex(category) * METRIC_COUNT + metric];
+    }
+
+    // Session lengths are heavy-tailed; on a log scale a z-score means the same for
+    // a five-minute habit and a two-hour one
+    private static double transform(int metric, float value) {
+        return metric == METRIC_DURATION ? Math.log1p(Math.max(0f, value)) : value;
+    }
+
+    private static int categoryIndex(int category) {
+        return category >= 0 && category < CATEGORY_COUNT ? category : AppRiskRegistry.CATEGORY_UNKNOWN;
+    }
+
+    private void record(int category, int metric, float value) {
+        if (Float.isNaN(value) || Float.isInfinite(value)) return;
+        double x = transform(metric, value);
+        int slot = category * METRIC_COUNT + metric;
+        int n = ++count[slot];
+
+        // Welford
+        double delta = x - mean[slot];
+        mean[slot] += delta / n;
+        m2[slot] += delta * (x - mean[slot]);
+
+        // Weighted by 1/n until that drops below the EWMA weight, so early samples are
+        // averaged instead of the first one dominating
+        double alpha = Math.max(EWMA_ALPHA, 1.0 / n);
+        double diff = x - ewMean[slot];
+        double increment = alpha * diff;
+        ewMean[slot] += increment;
+        ewVariance[slot] = (1 - alpha) * (ewVariance[slot] + diff * increment);
+        dirty = true;
+    }
+
+    // ---------------- Persistence ----------------
+
+    private void persistIfDirty() {
+        File tmp = new File(statsFile.getPath() + ".tmp");
+        synchronized (this) {
+            if (!dirty) return;
+            dirty = false;
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                out.writeInt(STATS_VERSION);
+                out.writeLong(lastSessionEnd);
+                for (int slot = 0; slot < count.length; slot++) {
+                    out.writeInt(count[slot]);
+                    out.writeFloat((float) mean[slot]);
+                    out.writeFloat((float) (count[slot] > 1 ? m2[slot] / (count[slot] - 1) : 0.0));
+                    out.writeFloat((float) ewMean[slot]);
+                    out.writeFloat((float) ewVariance[slot]);
+                }
+            } catch (IOException e) {
+                dirty = true;
+                Log.w(TAG, "Failed to persist baseline stats", e);
+                return;
+            }
+        }
+        if (!tmp.renameTo(statsFile)) {
+            synchronized (this) {
+                dirty = true;
+            }
+            Log.w(TAG, "Failed to replace baseline stats file");
+        }
+    }
+
+    private synchronized void restore() {
+        if (!statsFile.exists()) return;
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(statsFile)))) {
+            if (in.readInt() != STATS_VERSION) return;
+            lastSessionEnd = in.readLong();
+            for (int slot = 0; slot < count.length; slot++) {
+                count[slot] = in.readInt();
+                mean[slot] = in.readFloat();
+                m2[slot] = in.readFloat() * (double) Math.max(0, count[slot] - 1);
+                ewMean[slot] = in.readFloat();
+                ewVariance[slot] = in.readFloat();
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Discarding unreadable baseline stats", e);
+            lastSessionEnd = 0;
+            Arrays.fill(count, 0);
+            Arrays.fill(mean, 0);
+            Arrays.fill(m2, 0);
+            Arrays.fill(ewMean, 0);
+            Arrays.fill(ewVariance, 0);
+        }
+    }
+}
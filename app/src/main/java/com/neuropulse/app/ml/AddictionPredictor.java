@@ -3,11 +3,12 @@ package com.neuropulse.app.ml;
 import android.content.Context;
 import android.content.SharedPreferences;
 import android.util.Log;
-import android.util.LruCache;
 import com.neuropulse.app.database.EnhancedSessionData;
-import java.security.MessageDigest;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
 
 public class AddictionPredictor {
 
@@ -15,25 +16,55 @@ public class AddictionPredictor {
     public static class PredictionResult {
         public final float dopamineRisk;
         public final int addictionLevel;
+        /** Shared between results; read only. */
         public final String[] recommendations;
-        public final String[] insights;
         public final float confidence;
         public final String primaryReason;
 
+        // Insight inputs; the text is only built when something displays it
+        private final long sessionMinutes;
+        private final int appCategory;
+        private final int insightMask;
+        private String[] insights;
+
         public PredictionResult(float dopamineRisk, int addictionLevel, String[] recommendations,
                                 String[] insights, float confidence, String primaryReason) {
+            this(dopamineRisk, addictionLevel, recommendations, 0L, 0, 0, confidence, primaryReason);
+            this.insights = insights != null ? insights : new String[]{"No insights available"};
+        }
+
+        PredictionResult(float dopamineRisk, int addictionLevel, String[] recommendations,
+                         long sessionMinutes, int appCategory, int insightMask,
+                         float confidence, String primaryReason) {
             this.dopamineRisk = Math.max(0f, Math.min(1f, dopamineRisk));
             this.addictionLevel = Math.max(0, Math.min(2, addictionLevel));
             this.recommendations = recommendations != null ? recommendations : new String[]{"No recommendations available"};
-            this.insights = insights != null ? insights : new String[]{"No insights available"};
+            this.sessionMinutes = sessionMinutes;
+            this.appCategory = appCategory;
+            this.insightMask = insightMask;
             this.confidence = Math.max(0f, Math.min(1f, confidence));
             this.primaryReason = primaryReason != null ? primaryReason : "Unknown";
         }
 
+        // The same scores for another session under the same cache key; only the insight text differs
+        PredictionResult forSessionMinutes(long minutes) {
+            if (minutes == sessionMinutes) return this;
+            return new PredictionResult(dopamineRisk, addictionLevel, recommendations, minutes, appCategory,
+                    insightMask, confidence, primaryReason);
+        }
+
+        public String[] getInsights() {
+            String[] rendered = insights;
+            if (rendered == null) {
+                // Racing renders produce equal arrays, so either may win
+                rendered = formatInsights(sessionMinutes, appCategory, insightMask);
+                insights = rendered;
+            }
+            return rendered;
+        }
+
         public String getRiskLevel() {
-            if (dopamineRisk >= 0.7f) return "HIGH";
-            else if (dopamineRisk >= 0.4f) return "MEDIUM";
-            else return "LOW";
+            return RuleEngine.riskLevel(dopamineRisk);
         }
 
         public String getAddictionLevelString() {
@@ -46,23 +77,182 @@ public class AddictionPredictor {
         }
     }
 
+    // ---------------- Metrics Snapshot ----------------
+    public static class Metrics {
+        public final long predictions;
+        public final long cacheHits;
+        public final long cacheMisses;
+        public final long cacheEvictions;
+        public final long failures;
+        public final int cacheCapacity;
+
+        Metrics(long predictions, long cacheHits, long cacheMisses, long cacheEvictions,
+                long failures, int cacheCapacity) {
+            this.predictions = predictions;
+            this.cacheHits = cacheHits;
+            this.cacheMisses = cacheMisses;
+            this.cacheEvictions = cacheEvictions;
+            this.failures = failures;
+            this.cacheCapacity = cacheCapacity;
+        }
+
+        public float getHitRate() {
+            long lookups = cacheHits + cacheMisses;
+            return lookups > 0 ? cacheHits / (float) lookups : 0f;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "Predictions: %d, Cache hit rate: %.1f%% (%d evictions), Failures: %d",
+                    predictions, getHitRate() * 100, cacheEvictions, failures);
+        }
+    }
+
     // ---------------- AddictionPredictor Main Class ----------------
-    public enum Mode { STANDARD, OPTIMIZED }
+    /**
+     * STANDARD scores with the rules on every feature. OPTIMIZED is the low-power tier: the
+     * rules only see duration (15 min), category, hour of day and the binge flag, so it is
+     * cheaper to reason about and falls into fewer cache entries. TFLITE runs the bundled models.
+     */
+    public enum Mode { STANDARD, OPTIMIZED, TFLITE }
+
+    /** How far OPTIMIZED departs from STANDARD over a set of stored sessions. */
+    public static class TierAccuracyReport {
+        public final int sampleCount;
+        public final float addictionLevelAgreement;
+        public final float riskLevelAgreement;
+        public final float meanAbsoluteDopamineDelta;
+
+        TierAccuracyReport(int sampleCount, float addictionLevelAgreement,
+                           float riskLevelAgreement, float meanAbsoluteDopamineDelta) {
+            this.sampleCount = sampleCount;
+            this.addictionLevelAgreement = addictionLevelAgreement;
+            this.riskLevelAgreement = riskLevelAgreement;
+            this.meanAbsoluteDopamineDelta = meanAbsoluteDopamineDelta;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "OPTIMIZED vs STANDARD over %d sessions: addiction level %.1f%% agree, " +
+                            "risk level %.1f%% agree, mean |dopamine delta| %.3f",
+                    sampleCount, addictionLevelAgreement * 100, riskLevelAgreement * 100, meanAbsoluteDopamineDelta);
+        }
+    }
 
     private static final String TAG = "AddictionPredictor";
     private static final String PREFS_NAME = "ml_predictor";
+    private static final long REDUCED_DURATION_BUCKET = 15 * 60_000L;
+    // Cache key layout: rule intervals, then the insight category, then the tier
+    private static final int RULE_KEY_BITS = 58;
+    private static final long REDUCED_KEY_FLAG = 1L << 62;
+
+    // Recommendation triggers, one bit each; the two addiction levels are exclusive
+    private static final int REC_HIGH_RISK_LEVEL = 1;
+    private static final int REC_AT_RISK_LEVEL = 1 << 1;
+    private static final int REC_HIGH_ENGAGEMENT = 1 << 2;
+    private static final int REC_LONG_SESSION = 1 << 3;
+    private static final int REC_LATE_NIGHT = 1 << 4;
+    private static final String[][] RECOMMENDATION_TEXT = {
+            {"Consider taking a break from this app", "Try setting app time limits"},
+            {"Monitor your usage time", "Consider taking short breaks"},
+            {"High engagement detected - practice mindful usage"},
+            {"Long session detected - consider other activities"},
+            {"Late night usage may affect sleep quality"},
+    };
+    // Every trigger combination, built once and shared by all results
+    private static final String[][] RECOMMENDATION_SETS = buildRecommendationSets();
+    // Strictly above, unlike the HIGH tier's inclusive bound in the rule file
+    private static final float HIGH_ENGAGEMENT_RISK = 0.7f;
+
+    private static final int INSIGHT_HIGH_INTERACTION = 1;
+    private static final int INSIGHT_CONTINUOUS_USE = 1 << 1;
+    private static final String[] INSIGHT_TEXT = {"High interaction rate detected", "Extended continuous usage"};
+    private static final String[] CATEGORY_INSIGHTS = {
+            "App category: Social Media", "App category: Productivity", "App category: Entertainment",
+            "App category: Games", "App category: News", "App category: Shopping",
+            "App category: Communication", "App category: Health", "App category: Finance",
+            "App category: Utilities", "App category: Other"};
+
+    // A key scheme and the results stored under it, replaced together when the rules change;
+    // a prediction racing a reload can only fill the cache being dropped
+    private static final class RuleCache {
+        final RuleEngine.KeyScheme scheme;
+        final PredictionCache results = new PredictionCache(256);
+
+        RuleCache(RuleEngine.KeyScheme scheme) {
+            this.scheme = scheme;
+        }
+    }
 
-    private final Context context;
-    private final SharedPreferences prefs;
-    private final LruCache<String, PredictionResult> predictionCache;
+    // Per-thread scoring buffers, so a prediction allocates little beyond its result
+    private static final class Scratch {
+        final float[] features = new float[FeatureEncoder.FEATURE_COUNT];
+        final RuleEngine.Evaluation evaluation = new RuleEngine.Evaluation();
+        final float[] modelOutput = new float[TfLiteInferenceEngine.OUTPUT_SIZE];
+    }
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
 
-    private long totalPredictions = 0;
-    private long cacheHits = 0;
+    private static AddictionPredictor instance;
 
-    public AddictionPredictor(Context context, Mode mode) {
+    private final Context context;
+    private final SharedPreferences prefs;
+    private final FeatureEncoder featureEncoder;
+    private final RuleEngine ruleEngine;
+    private volatile RuleCache ruleCache;
+
+    // Recommendation and insight triggers, in encoded units
+    private final float longSessionHours;
+    private final float lateNightStart;
+    private final float lateNightEnd;
+    private final float highInteractionScrolls;
+    private final float continuousUseMinutes;
+    private final int[] triggerFeatures;
+    private final float[] triggerCuts;
+    private volatile Mode mode = Mode.STANDARD;
+    private volatile TfLiteInferenceEngine inferenceEngine;
+    private volatile boolean inferenceEngineFailed = false;
+    private volatile ShadowEvaluator shadowEvaluator; // null while shadow evaluation is off
+    private ShadowEvaluator shadowStats;              // kept once created, so stats survive toggling
+
+    // Counted separately so the sums stay consistent under concurrent callers
+    private final LongAdder totalPredictions = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    private AddictionPredictor(Context context) {
         this.context = context.getApplicationContext();
         this.prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        this.predictionCache = new LruCache<>(100);
+        this.featureEncoder = FeatureEncoder.getInstance(context);
+        this.ruleEngine = RuleEngine.getInstance(context);
+
+        this.longSessionHours = featureEncoder.normalize(FeatureEncoder.DURATION_HOURS, 2f);
+        this.lateNightStart = featureEncoder.normalize(FeatureEncoder.TIME_OF_DAY, 22f / 24f);
+        this.lateNightEnd = featureEncoder.normalize(FeatureEncoder.TIME_OF_DAY, 6f / 24f);
+        this.highInteractionScrolls = featureEncoder.normalize(FeatureEncoder.SCROLLS_PER_MINUTE, 10f);
+        this.continuousUseMinutes = featureEncoder.normalize(FeatureEncoder.CONSECUTIVE_SAME_APP, 60f);
+        // buildResult compares these itself, so the cache key must resolve them as well
+        this.triggerFeatures = new int[]{FeatureEncoder.DURATION_HOURS, FeatureEncoder.TIME_OF_DAY,
+                FeatureEncoder.TIME_OF_DAY, FeatureEncoder.SCROLLS_PER_MINUTE, FeatureEncoder.CONSECUTIVE_SAME_APP};
+        this.triggerCuts = new float[]{longSessionHours, lateNightStart, lateNightEnd,
+                highInteractionScrolls, continuousUseMinutes};
+        this.ruleCache = new RuleCache(ruleEngine.newKeyScheme(triggerFeatures, triggerCuts, RULE_KEY_BITS));
+    }
+
+    /** Process-wide predictor; safe to call from any thread. */
+    public static synchronized AddictionPredictor getInstance(Context context) {
+        if (instance == null) {
+            instance = new AddictionPredictor(context);
+        }
+        return instance;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public void setMode(Mode mode) {
+        this.mode = mode;
     }
 
     // ---------------- Rule-Based Prediction ----------------
@@ -71,192 +261,284 @@ public class AddictionPredictor {
             return createDefaultPrediction("No data available");
         }
 
-        totalPredictions++;
+        PredictionResult result = predictPrimary(sessionData);
+        ShadowEvaluator shadow = shadowEvaluator;
+        if (shadow != null) shadow.submit(sessionData);
+        return result;
+    }
+
+    private PredictionResult predictPrimary(EnhancedSessionData sessionData) {
+        totalPredictions.increment();
 
         try {
-            String cacheKey = generateSecureCacheKey(sessionData);
-            PredictionResult cached = predictionCache.get(cacheKey);
-            if (cached != null) {
-                cacheHits++;
-                return cached;
+            if (mode == Mode.TFLITE) {
+                TfLiteInferenceEngine engine = getInferenceEngine();
+                if (engine != null) return predictWithModel(engine, sessionData);
             }
 
-            // Rule-based prediction logic
-            float dopamineRisk = calculateRuleBasedDopamineRisk(sessionData);
-            int addictionLevel = calculateRuleBasedAddictionLevel(sessionData);
-            String[] recommendations = generateRuleBasedRecommendations(sessionData, dopamineRisk, addictionLevel);
-            String[] insights = generateRuleBasedInsights(sessionData);
-            String primaryReason = determineRuleBasedReason(sessionData);
-
-            PredictionResult result = new PredictionResult(
-                    dopamineRisk, addictionLevel, recommendations, insights, 0.8f, primaryReason
-            );
-
-            predictionCache.put(cacheKey, result);
-            if (totalPredictions % 50 == 0) {
-                logPerformanceMetrics();
+            RuleCache cache = currentRuleCache();
+            boolean reduced = mode == Mode.OPTIMIZED;
+            float[] features = SCRATCH.get().features;
+            long duration = encodeForRules(sessionData, reduced, features);
+            long cacheKey = generateCacheKey(cache.scheme, features, sessionData.appCategory, reduced);
+            if (cacheKey != RuleEngine.KeyScheme.NO_KEY) {
+                PredictionResult cached = cache.results.get(cacheKey);
+                if (cached != null) {
+                    cacheHits.increment();
+                    return cached.forSessionMinutes(duration / 60_000L);
+                }
             }
+            cacheMisses.increment();
 
+            PredictionResult result = scoreEncoded(cache.scheme, features, duration, sessionData.appCategory);
+            if (cacheKey != RuleEngine.KeyScheme.NO_KEY) cache.results.put(cacheKey, result);
             return result;
 
         } catch (Exception e) {
+            failures.increment();
             Log.e(TAG, "Prediction failed", e);
             return createDefaultPrediction("Prediction error: " + e.getMessage());
         }
     }
 
-    private float calculateRuleBasedDopamineRisk(EnhancedSessionData data) {
-        float risk = 0.0f;
-
-        // Session duration risk (0-0.3)
-        long durationHours = data.sessionDuration / (1000 * 60 * 60);
-        if (durationHours > 3) risk += 0.3f;
-        else if (durationHours > 1) risk += 0.2f;
-        else if (durationHours > 0.5) risk += 0.1f;
-
-        // App category risk (0-0.3)
-        if (data.appCategory == 0) risk += 0.3f; // Social media
-        else if (data.appCategory == 2) risk += 0.25f; // Entertainment
-        else if (data.appCategory == 3) risk += 0.2f; // Games
+    // Rule-based prediction logic
+    private PredictionResult scoreWithRules(EnhancedSessionData sessionData, boolean reduced) {
+        float[] features = SCRATCH.get().features;
+        long duration = encodeForRules(sessionData, reduced, features);
+        return scoreEncoded(currentRuleCache().scheme, features, duration, sessionData.appCategory);
+    }
 
-        // Usage intensity risk (0-0.2)
-        if (data.scrollsPerMinute > 15) risk += 0.2f;
-        else if (data.scrollsPerMinute > 10) risk += 0.15f;
-        else if (data.scrollsPerMinute > 5) risk += 0.1f;
+    private PredictionResult scoreEncoded(RuleEngine.KeyScheme rules, float[] features, long duration,
+                                          int appCategory) {
+        RuleEngine.Evaluation evaluation = SCRATCH.get().evaluation;
+        rules.evaluate(features, 0, evaluation);
+        return buildResult(features, duration, appCategory, evaluation.dopamineRisk,
+                evaluation.addictionLevel, 0.8f, rules.getReason(evaluation.reason));
+    }
 
-        // Time of day risk (0-0.2)
-        float hour = data.timeOfDay * 24;
-        if (hour > 22 || hour < 6) risk += 0.2f;
-        else if (hour > 18) risk += 0.1f;
+    private RuleCache currentRuleCache() {
+        RuleCache cache = ruleCache;
+        if (cache.scheme.generation != ruleEngine.getGeneration()) {
+            // Rules were retuned: new intervals to key on, and nothing cached still holds
+            cache = new RuleCache(ruleEngine.newKeyScheme(triggerFeatures, triggerCuts, RULE_KEY_BITS));
+            ruleCache = cache;
+        }
+        return cache;
+    }
 
-        return Math.min(1.0f, risk);
+    // Encodes what a rule tier sees; returns the session duration that view scores
+    private long encodeForRules(EnhancedSessionData sessionData, boolean reduced, float[] features) {
+        long duration = sessionData.sessionDuration;
+        if (!reduced) {
+            featureEncoder.encode(sessionData, features, 0);
+            return duration;
+        }
+        // The OPTIMIZED view: duration, category, hour and binge flag only, snapped to
+        // 15 min and the hour. The hour is centered so hour-boundary rules resolve the
+        // same way for the whole hour. The dropped columns are never computed.
+        featureEncoder.encodeReduced(sessionData, features, 0);
+        duration = duration / REDUCED_DURATION_BUCKET * REDUCED_DURATION_BUCKET;
+        setFeature(features, FeatureEncoder.DURATION_HOURS, duration / 3_600_000f);
+        setFeature(features, FeatureEncoder.TIME_OF_DAY, (reducedHour(sessionData.timeOfDay) + 0.5f) / 24f);
+        return duration;
     }
 
-    private int calculateRuleBasedAddictionLevel(EnhancedSessionData data) {
-        int score = 0;
+    private void setFeature(float[] features, int feature, float raw) {
+        features[feature] = featureEncoder.normalize(feature, raw);
+    }
 
-        long durationHours = data.sessionDuration / (1000 * 60 * 60);
-        if (durationHours > 4) score += 3;
-        else if (durationHours > 2) score += 2;
-        else if (durationHours > 1) score += 1;
+    private static long reducedHour(float timeOfDay) {
+        return Math.min(Math.max((long) (timeOfDay * 24), 0L), 23L);
+    }
 
-        if (data.appCategory == 0) score += 2; // Social media
-        else if (data.appCategory == 2 || data.appCategory == 3) score += 1;
+    /** Scores each session in both rule tiers and reports how often they agree. */
+    public TierAccuracyReport evaluateOptimizedAccuracy(List<EnhancedSessionData> sessions) {
+        int samples = 0;
+        int levelMatches = 0;
+        int riskMatches = 0;
+        double dopamineDelta = 0;
+        for (EnhancedSessionData session : sessions) {
+            if (session == null) continue;
+            PredictionResult standard = scoreWithRules(session, false);
+            PredictionResult optimized = scoreWithRules(session, true);
+            samples++;
+            if (standard.addictionLevel == optimized.addictionLevel) levelMatches++;
+            if (standard.getRiskLevel().equals(optimized.getRiskLevel())) riskMatches++;
+            dopamineDelta += Math.abs(standard.dopamineRisk - optimized.dopamineRisk);
+        }
+        if (samples == 0) return new TierAccuracyReport(0, 1f, 1f, 0f);
+        return new TierAccuracyReport(samples, levelMatches / (float) samples,
+                riskMatches / (float) samples, (float) (dopamineDelta / samples));
+    }
 
-        if (data.bingeFlag == 1) score += 2;
-        if (data.scrollsPerMinute > 20) score += 1;
+    // The model reads every feature, so results are not cached under the rule key
+    private PredictionResult predictWithModel(TfLiteInferenceEngine engine, EnhancedSessionData sessionData) {
+        Scratch scratch = SCRATCH.get();
+        float[] features = scratch.features;
+        featureEncoder.encode(sessionData, features, 0);
 
-        if (data.consecutiveSameApp > 120) score += 2;
-        else if (data.consecutiveSameApp > 60) score += 1;
+        float[] output = scratch.modelOutput;
+        int addictionLevel = runModels(engine, features, output);
 
-        if (score >= 6) return 2; // High risk
-        else if (score >= 3) return 1; // At risk
-        else return 0; // Healthy
+        // The rules still supply the reason, from the same encoded vector
+        ruleEngine.evaluate(features, 0, scratch.evaluation);
+        return buildResult(features, sessionData.sessionDuration, sessionData.appCategory, output[0],
+                addictionLevel, output[1 + addictionLevel], ruleEngine.getReason(scratch.evaluation.reason));
     }
 
-    private String[] generateRuleBasedRecommendations(EnhancedSessionData data,
-                                                      float dopamineRisk, int addictionLevel) {
-        List<String> recommendations = new ArrayList<>();
-
-        if (addictionLevel == 2) {
-            recommendations.add("Consider taking a break from this app");
-            recommendations.add("Try setting app time limits");
-        } else if (addictionLevel == 1) {
-            recommendations.add("Monitor your usage time");
-            recommendations.add("Consider taking short breaks");
-        }
-
-        if (dopamineRisk > 0.7f) {
-            recommendations.add("High engagement detected - practice mindful usage");
+    // Fills output and returns the most probable addiction class
+    private static int runModels(TfLiteInferenceEngine engine, float[] features, float[] output) {
+        engine.infer(features, 0, output);
+        int addictionLevel = 0;
+        for (int c = 1; c < TfLiteInferenceEngine.ADDICTION_CLASSES; c++) {
+            if (output[1 + c] > output[1 + addictionLevel]) addictionLevel = c;
         }
+        return addictionLevel;
+    }
 
-        long durationHours = data.sessionDuration / (1000 * 60 * 60);
-        if (durationHours > 2) {
-            recommendations.add("Long session detected - consider other activities");
+    // ---------------- Shadow Scoring ----------------
+    /**
+     * Scores {@code sessionData} on one path into {@code out} (the reason is left unset),
+     * bypassing the cache and the metrics. {@code engine} is only read for TFLITE.
+     */
+    void scorePath(Mode path, EnhancedSessionData sessionData, TfLiteInferenceEngine engine,
+                   RuleEngine.Evaluation out) {
+        Scratch scratch = SCRATCH.get();
+        float[] features = scratch.features;
+        if (path == Mode.TFLITE) {
+            featureEncoder.encode(sessionData, features, 0);
+            out.addictionLevel = runModels(engine, features, scratch.modelOutput);
+            out.dopamineRisk = scratch.modelOutput[0];
+            return;
         }
+        encodeForRules(sessionData, path == Mode.OPTIMIZED, features);
+        ruleEngine.evaluate(features, 0, out);
+    }
 
-        float hour = data.timeOfDay * 24;
-        if (hour > 22 || hour < 6) {
-            recommendations.add("Late night usage may affect sleep quality");
+    /**
+     * Runs every later prediction through all paths side by side on a background thread
+     * (see {@link ShadowEvaluator}); the primary path is unaffected.
+     */
+    public void setShadowEvaluation(boolean enabled) {
+        if (!enabled) {
+            shadowEvaluator = null;
+            return;
         }
-
-        if (recommendations.isEmpty()) {
-            recommendations.add("Healthy usage pattern detected");
+        synchronized (this) {
+            if (shadowEvaluator == null) {
+                if (shadowStats == null) shadowStats = new ShadowEvaluator(context, this);
+                shadowEvaluator = shadowStats;
+            }
         }
-
-        return recommendations.toArray(new String[0]);
     }
 
-    private String[] generateRuleBasedInsights(EnhancedSessionData data) {
-        List<String> insights = new ArrayList<>();
-
-        long durationMinutes = data.sessionDuration / (1000 * 60);
-        insights.add("Session duration: " + durationMinutes + " minutes");
-
-        String appType = getCategoryName(data.appCategory);
-        insights.add("App category: " + appType);
+    /** The shadow statistics, or null if shadow evaluation was never enabled. */
+    public synchronized ShadowEvaluator getShadowEvaluator() {
+        return shadowStats;
+    }
 
-        if (data.scrollsPerMinute > 10) {
-            insights.add("High interaction rate detected");
+    // Created on first use; a failure to load falls back to the rules for good
+    private TfLiteInferenceEngine getInferenceEngine() {
+        TfLiteInferenceEngine engine = inferenceEngine;
+        if (engine != null || inferenceEngineFailed) return engine;
+        synchronized (this) {
+            if (inferenceEngine == null && !inferenceEngineFailed && !featureEncoder.hasStats()) {
+                inferenceEngineFailed = true;
+                Log.e(TAG, "No feature scaling for the TFLite models, using rule-based scoring");
+            }
+            if (inferenceEngine == null && !inferenceEngineFailed) {
+                try {
+                    inferenceEngine = new TfLiteInferenceEngine(context);
+                } catch (Exception | LinkageError e) {
+                    inferenceEngineFailed = true;
+                    Log.e(TAG, "TFLite models unavailable, using rule-based scoring", e);
+                }
+            }
+            return inferenceEngine;
         }
+    }
 
-        if (data.consecutiveSameApp > 60) {
-            insights.add("Extended continuous usage");
-        }
+    // Selects the shared recommendation set and records the insight inputs
+    private PredictionResult buildResult(float[] features, long sessionDuration, int appCategory, float dopamineRisk,
+                                         int addictionLevel, float confidence, String primaryReason) {
+        float timeOfDay = features[FeatureEncoder.TIME_OF_DAY];
+        int recommendations = 0;
+        if (addictionLevel == 2) recommendations |= REC_HIGH_RISK_LEVEL;
+        else if (addictionLevel == 1) recommendations |= REC_AT_RISK_LEVEL;
+        if (dopamineRisk > HIGH_ENGAGEMENT_RISK) recommendations |= REC_HIGH_ENGAGEMENT;
+        if (features[FeatureEncoder.DURATION_HOURS] > longSessionHours) recommendations |= REC_LONG_SESSION;
+        if (timeOfDay > lateNightStart || timeOfDay < lateNightEnd) recommendations |= REC_LATE_NIGHT;
+
+        int insights = 0;
+        if (features[FeatureEncoder.SCROLLS_PER_MINUTE] > highInteractionScrolls) insights |= INSIGHT_HIGH_INTERACTION;
+        if (features[FeatureEncoder.CONSECUTIVE_SAME_APP] > continuousUseMinutes) insights |= INSIGHT_CONTINUOUS_USE;
+
+        return new PredictionResult(dopamineRisk, addictionLevel, RECOMMENDATION_SETS[recommendations],
+                sessionDuration / 60_000L, appCategory, insights, confidence, primaryReason);
+    }
 
-        return insights.toArray(new String[0]);
+    private static String[][] buildRecommendationSets() {
+        String[][] sets = new String[1 << RECOMMENDATION_TEXT.length][];
+        for (int mask = 0; mask < sets.length; mask++) {
+            List<String> recommendations = new ArrayList<>();
+            for (int bit = 0; bit < RECOMMENDATION_TEXT.length; bit++) {
+                if ((mask & (1 << bit)) != 0) Collections.addAll(recommendations, RECOMMENDATION_TEXT[bit]);
+            }
+            if (recommendations.isEmpty()) {
+                recommendations.add("Healthy usage pattern detected");
+            }
+            sets[mask] = recommendations.toArray(new String[0]);
+        }
+        return sets;
     }
 
-    private String getCategoryName(int category) {
-        String[] categories = {"Social Media", "Productivity", "Entertainment",
-                "Games", "News", "Shopping", "Communication",
-                "Health", "Finance", "Utilities"};
-        return category < categories.length ? categories[category] : "Other";
+    private static String[] formatInsights(long sessionMinutes, int appCategory, int insightMask) {
+        String[] insights = new String[2 + Integer.bitCount(insightMask)];
+        insights[0] = "Session duration: " + sessionMinutes + " minutes";
+        insights[1] = CATEGORY_INSIGHTS[insightCategory(appCategory)];
+        int next = 2;
+        for (int bit = 0; bit < INSIGHT_TEXT.length; bit++) {
+            if ((insightMask & (1 << bit)) != 0) insights[next++] = INSIGHT_TEXT[bit];
+        }
+        return insights;
     }
 
-    private String determineRuleBasedReason(EnhancedSessionData data) {
-        if (data.bingeFlag == 1) return "Binge usage detected";
-        if (data.sessionDuration > 3 * 60 * 60 * 1000) return "Extended session duration";
-        if (data.appCategory == 0) return "High-stimulation social media usage";
-        if (data.scrollsPerMinute > 15) return "High interaction rate";
-        if (data.consecutiveSameApp > 120) return "Prolonged continuous usage";
-        return "Moderate usage pattern";
+    private static int insightCategory(int appCategory) {
+        return appCategory >= 0 && appCategory < CATEGORY_INSIGHTS.length - 1 ? appCategory : CATEGORY_INSIGHTS.length - 1;
     }
 
     // ---------------- Helper ----------------
-    private String generateSecureCacheKey(EnhancedSessionData data) {
-        try {
-            String keyData = String.format("%s_%d_%d_%d_%.2f_%d",
-                    data.appName,
-                    data.sessionDuration / 300000,
-                    data.appCategory,
-                    data.consecutiveSameApp / 10,
-                    Math.round(data.timeOfDay * 24) / 24.0,
-                    data.bingeFlag);
-
-            MessageDigest md = MessageDigest.getInstance("MD5");
-            byte[] hash = md.digest(keyData.getBytes());
-            StringBuilder sb = new StringBuilder();
-            for (byte b : hash) sb.append(String.format("%02x", b));
-            return sb.toString().substring(0, 16);
-        } catch (Exception e) {
-            return "fallback_" + System.currentTimeMillis() % 10000;
-        }
+    /**
+     * Keys an encoded rule-tier vector: the rule interval of every feature the rules or the
+     * recommendation triggers read (see {@link RuleEngine.KeyScheme}), the category the
+     * insights name, and the tier. Sessions share a key only if they get the same scores,
+     * recommendations and insights; the session length in the insight text is patched per
+     * hit. Returns {@link RuleEngine.KeyScheme#NO_KEY} for vectors that are not cached.
+     */
+    long generateCacheKey(RuleEngine.KeyScheme scheme, float[] features, int appCategory, boolean reduced) {
+        long key = scheme.keyOf(features, 0);
+        if (key == RuleEngine.KeyScheme.NO_KEY) return key;
+        return key
+                | (long) insightCategory(appCategory) << RULE_KEY_BITS                  // 4 bits
+                | (reduced ? REDUCED_KEY_FLAG : 0L);
     }
 
     private PredictionResult createDefaultPrediction(String message) {
         return new PredictionResult(0f, 0, new String[]{message}, new String[]{message}, 0.5f, "Unknown");
     }
 
-    private void logPerformanceMetrics() {
-        float hitRate = totalPredictions > 0 ? (cacheHits / (float) totalPredictions) : 0f;
-        Log.i(TAG, String.format("Predictions: %d, Cache hit rate: %.1f%%", totalPredictions, hitRate * 100));
+    /** Point-in-time copy of the counters; cheap enough to poll from the UI. */
+    public Metrics getMetrics() {
+        return new Metrics(totalPredictions.sum(), cacheHits.sum(), cacheMisses.sum(),
+                ruleCache.results.evictionCount(), failures.sum(), ruleCache.results.capacity());
     }
 
     public void resetPredictor() {
-        predictionCache.evictAll();
-        totalPredictions = 0;
-        cacheHits = 0;
+        ruleCache.results.clear();
+        totalPredictions.reset();
+        cacheHits.reset();
+        cacheMisses.reset();
+        failures.reset();
         prefs.edit().clear().apply();
     }
 }
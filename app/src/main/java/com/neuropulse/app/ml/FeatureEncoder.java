@@ -0,0 +1,281 @@
+// FeatureEncoder.java
+// Location: app/src/main/java/com/neuropulse/app/ml/FeatureEncoder.java
+package com.neuropulse.app.ml;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.neuropulse.app.database.EnhancedSessionData;
+import com.neuropulse.app.features.UserBaselineStats;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.FloatBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Turns sessions into the fixed, standardized feature layout the bundled models were
+ * trained on: the raw columns followed by the training script's engineered ones. The
+ * scaling statistics ship next to the models in {@code assets/feature_scaler.json},
+ * written by {@code ml_training/enhanced_ml_training.py}.
+ *
+ * The model columns are followed by z-scores against the user's own baseline
+ * ({@link UserBaselineStats}), which only the rules read. A session is encoded once per
+ * prediction. The TFLite models read the first {@link #MODEL_FEATURE_COUNT} values as is,
+ * and the rule engine compares the vector against thresholds normalized when the rules
+ * are compiled.
+ */
+public class FeatureEncoder {
+    private static final String TAG = "FeatureEncoder";
+    private static final String SCALER_FILE = "feature_scaler.json";
+
+    // Layout, in training column order
+    public static final int SESSION_DURATION = 0;
+    public static final int UNLOCK_COUNT = 1;
+    public static final int APP_CATEGORY = 2;
+    public static final int NOTIF_COUNT = 3;
+    public static final int NOTIF_RESPONSE = 4;
+    public static final int APP_SWITCH_COUNT = 5;
+    public static final int TIME_OF_DAY = 6;
+    public static final int CONSECUTIVE_SAME_APP = 7;
+    public static final int BINGE_FLAG = 8;
+    public static final int SCROLLS_PER_MINUTE = 9;
+    public static final int UNLOCK_FREQUENCY = 10;
+    public static final int DURATION_HOURS = 11;
+    public static final int HIGH_STIM_APP = 12;
+    public static final int NOTIF_RESPONSIVENESS = 13;
+    public static final int USAGE_INTENSITY = 14;
+    public static final int EVENING_USAGE = 15;
+    public static final int MODEL_FEATURE_COUNT = 16;
+    // Relative to the user's baseline for the app's category; already standard units
+    public static final int DURATION_Z = 16;
+    public static final int UNLOCK_RATE_Z = 17;
+    public static final int INTENSITY_Z = 18;
+    public static final int FEATURE_COUNT = 19;
+    static final String[] FEATURE_NAMES = {
+            "session_duration", "unlock_count", "app_category", "notif_count",
+            "notif_response", "app_switch_count", "time_of_day", "consecutive_same_app",
+            "binge_flag", "scrolls_per_minute", "unlock_frequency", "duration_hours",
+            "high_stim_app", "notif_responsiveness", "usage_intensity", "evening_usage",
+            "duration_z", "unlock_rate_z", "intensity_z"};
+
+    /**
+     * Struct-of-arrays buffer for many sessions: each feature is one contiguous column of
+     * {@code capacity} values, so a pass over one feature for every row is a linear scan.
+     */
+    public static final class Batch {
+        public final int capacity;
+        final float[] values;
+        // Rule evaluation scratch, one slot per row
+        final long[] groupMask;
+        final float[] levelScore;
+        int size;
+
+        Batch(int capacity) {
+            this.capacity = capacity;
+            this.values = new float[FEATURE_COUNT * capacity];
+            this.groupMask = new long[capacity];
+            this.levelScore = new float[capacity];
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public float get(int feature, int row) {
+            return values[feature * capacity + row];
+        }
+
+        /** Copies one row into {@code dest} in the single-session layout. */
+        public void copyRow(int row, float[] dest, int offset) {
+            for (int f = 0; f < FEATURE_COUNT; f++) {
+                dest[offset + f] = values[f * capacity + row];
+            }
+        }
+
+        public void clear() {
+            size = 0;
+        }
+    }
+
+    private static FeatureEncoder instance;
+
+    private final float[] mean = new float[FEATURE_COUNT];
+    private final float[] inverseScale = new float[FEATURE_COUNT];
+    private final boolean hasStats;
+    private final UserBaselineStats baseline;
+
+    private FeatureEncoder(Context context) {
+        this.baseline = UserBaselineStats.getInstance(context);
+        Arrays.fill(inverseScale, MODEL_FEATURE_COUNT, FEATURE_COUNT, 1f);
+        boolean loaded = false;
+        try (InputStream in = context.getAssets().open(SCALER_FILE)) {
+            loadStats(new JSONObject(readFully(in)));
+            loaded = true;
+        } catch (IOException | JSONException | RuntimeException e) {
+            // Identity scaling keeps the rules working; the models are unusable without stats
+            Log.e(TAG, "Failed to load feature scaling, encoding raw values", e);
+            Arrays.fill(mean, 0f);
+            Arrays.fill(inverseScale, 1f);
+        }
+        this.hasStats = loaded;
+    }
+
+    // Identity scaling and the given baselines; for tests
+    FeatureEncoder(UserBaselineStats baseline) {
+        this.baseline = baseline;
+        Arrays.fill(inverseScale, 1f);
+        this.hasStats = false;
+    }
+
+    public static synchronized FeatureEncoder getInstance(Context context) {
+        if (instance == null) {
+            instance = new FeatureEncoder(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /** Whether the training statistics were loaded; the models need them. */
+    public boolean hasStats() {
+        return hasStats;
+    }
+
+    /** Standardizes a raw value of {@code feature}. */
+    public float normalize(int feature, float raw) {
+        return (raw - mean[feature]) * inverseScale[feature];
+    }
+
+    /** Writes the normalized features of {@code data} at {@code offset}. */
+    public void encode(EnhancedSessionData data, float[] out, int offset) {
+        for (int f = 0; f < FEATURE_COUNT; f++) {
+            out[offset + f] = feature(data, f);
+        }
+    }
+
+    /**
+     * Like {@link #encode(EnhancedSessionData, float[], int)} for the low-power tier, which
+     * ignores scroll rate, consecutive use and the baseline z-scores: those are written as
+     * zero raw values and zero z-scores, without the baseline lookups.
+     */
+    public void encodeReduced(EnhancedSessionData data, float[] out, int offset) {
+        for (int f = 0; f < MODEL_FEATURE_COUNT; f++) {
+            boolean skipped = f == SCROLLS_PER_MINUTE || f == CONSECUTIVE_SAME_APP;
+            out[offset + f] = normalize(f, skipped ? 0f : rawFeature(data, f));
+        }
+        for (int f = MODEL_FEATURE_COUNT; f < FEATURE_COUNT; f++) {
+            out[offset + f] = 0f;
+        }
+    }
+
+    /** Writes the normalized features at the buffer's position without moving it. */
+    public void encode(EnhancedSessionData data, FloatBuffer out) {
+        int base = out.position();
+        for (int f = 0; f < FEATURE_COUNT; f++) {
+            out.put(base + f, feature(data, f));
+        }
+    }
+
+    public Batch newBatch(int capacity) {
+        return new Batch(capacity);
+    }
+
+    /**
+     * Replaces the batch contents with as many of {@code sessions} as fit, skipping nulls;
+     * returns how many sessions were consumed.
+     */
+    public int encodeBatch(List<EnhancedSessionData> sessions, Batch batch) {
+        int consumed = 0;
+        int row = 0;
+        int count = sessions.size();
+        while (consumed < count && row < batch.capacity) {
+            EnhancedSessionData data = sessions.get(consumed++);
+            if (data == null) continue;
+            for (int f = 0; f < FEATURE_COUNT; f++) {
+                batch.values[f * batch.capacity + row] = feature(data, f);
+            }
+            row++;
+        }
+        batch.size = row;
+        return consumed;
+    }
+
+    /** Relative features for one session; the baseline is per category. */
+    public float baselineZScore(EnhancedSessionData data, int feature) {
+        switch (feature) {
+            case DURATION_Z:
+                // The app's own open session, not the monitoring window
+                return baseline.zScore(data.appCategory, UserBaselineStats.METRIC_DURATION, data.consecutiveSameApp);
+            case UNLOCK_RATE_Z:
+                return baseline.zScore(data.appCategory, UserBaselineStats.METRIC_UNLOCK_RATE, data.unlockFrequency);
+            case INTENSITY_Z:
+                return baseline.zScore(data.appCategory, UserBaselineStats.METRIC_INTENSITY, data.scrollsPerMinute);
+            default:
+                throw new IllegalArgumentException("No baseline feature " + feature);
+        }
+    }
+
+    private float feature(EnhancedSessionData data, int feature) {
+        return feature < MODEL_FEATURE_COUNT ? normalize(feature, rawFeature(data, feature)) : baselineZScore(data, feature);
+    }
+
+    // Raw columns, then the engineered ones exactly as the training script derives them
+    private static float rawFeature(EnhancedSessionData data, int feature) {
+        switch (feature) {
+            case SESSION_DURATION: return data.sessionDuration;
+            case UNLOCK_COUNT: return data.unlockCount;
+            case APP_CATEGORY: return data.appCategory;
+            case NOTIF_COUNT: return data.notifCount;
+            case NOTIF_RESPONSE: return data.notifResponse;
+            case APP_SWITCH_COUNT: return data.appSwitchCount;
+            case TIME_OF_DAY: return data.timeOfDay;
+            case CONSECUTIVE_SAME_APP: return data.consecutiveSameApp;
+            case BINGE_FLAG: return data.bingeFlag;
+            case SCROLLS_PER_MINUTE: return data.scrollsPerMinute;
+            case UNLOCK_FREQUENCY: return data.unlockFrequency;
+            case DURATION_HOURS: return data.sessionDuration / 3_600_000f;
+            case HIGH_STIM_APP:
+                return data.appCategory == 0 || data.appCategory == 2 || data.appCategory == 3 ? 1f : 0f;
+            case NOTIF_RESPONSIVENESS: return data.notifResponse / 2f;
+            case USAGE_INTENSITY: return data.unlockFrequency * data.scrollsPerMinute / 100f;
+            case EVENING_USAGE: return data.timeOfDay >= 0.79f || data.timeOfDay <= 0.25f ? 1f : 0f;
+            default: throw new IllegalArgumentException("No feature " + feature);
+        }
+    }
+
+    private void loadStats(JSONObject json) throws JSONException {
+        JSONArray names = json.getJSONArray("features");
+        JSONArray means = json.getJSONArray("mean");
+        JSONArray scales = json.getJSONArray("scale");
+        if (names.length() != MODEL_FEATURE_COUNT || means.length() != MODEL_FEATURE_COUNT
+                || scales.length() != MODEL_FEATURE_COUNT) {
+            throw new JSONException("Expected " + MODEL_FEATURE_COUNT + " features");
+        }
+        for (int f = 0; f < MODEL_FEATURE_COUNT; f++) {
+            // The layout is fixed by the models; refuse stats for a different column order
+            if (!FEATURE_NAMES[f].equals(names.getString(f))) {
+                throw new JSONException("Feature " + f + " is " + names.getString(f) + ", expected " + FEATURE_NAMES[f]);
+            }
+            double scale = scales.getDouble(f);
+            if (!(scale > 0)) throw new JSONException("Non-positive scale for " + FEATURE_NAMES[f]);
+            mean[f] = (float) means.getDouble(f);
+            inverseScale[f] = (float) (1.0 / scale);
+        }
+    }
+
+    static String readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
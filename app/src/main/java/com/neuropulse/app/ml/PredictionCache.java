@@ -0,0 +1,69 @@
+// PredictionCache.java
+// Location: app/src/main/java/com/neuropulse/app/ml/PredictionCache.java
+package com.neuropulse.app.ml;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free direct-mapped prediction cache keyed by a primitive 64-bit feature key.
+ * Each slot holds an immutable key/value entry published with a single atomic store, so
+ * readers on any thread see either the old or the new pair, never a torn one. A lookup is
+ * a hash mix, a mask and one long comparison: no boxing, no strings, no digests.
+ */
+class PredictionCache {
+
+    private static final class Entry {
+        final long key;
+        final AddictionPredictor.PredictionResult value;
+
+        Entry(long key, AddictionPredictor.PredictionResult value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    private final AtomicReferenceArray<Entry> slots;
+    private final int mask;
+    private final LongAdder evictions = new LongAdder();
+
+    PredictionCache(int capacityPowerOfTwo) {
+        this.slots = new AtomicReferenceArray<>(capacityPowerOfTwo);
+        this.mask = capacityPowerOfTwo - 1;
+    }
+
+    AddictionPredictor.PredictionResult get(long key) {
+        Entry entry = slots.get(slotFor(key));
+        return entry != null && entry.key == key ? entry.value : null;
+    }
+
+    void put(long key, AddictionPredictor.PredictionResult value) {
+        Entry previous = slots.getAndSet(slotFor(key), new Entry(key, value));
+        if (previous != null && previous.key != key) {
+            evictions.increment();
+        }
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+
+    long evictionCount() {
+        return evictions.sum();
+    }
+
+    void clear() {
+        for (int i = 0; i <= mask; i++) {
+            slots.set(i, null);
+        }
+        evictions.reset();
+    }
+
+    private int slotFor(long key) {
+        // Murmur3 finalizer: spreads the packed bit fields over the low bits
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return (int) key & mask;
+    }
+}
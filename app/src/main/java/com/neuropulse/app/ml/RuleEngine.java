@@ -0,0 +1,482 @@
+// RuleEngine.java
+// Location: app/src/main/java/com/neuropulse/app/ml/RuleEngine.java
+package com.neuropulse.app.ml;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.neuropulse.app.database.EnhancedSessionData;
+import com.neuropulse.app.utils.MaintenanceScheduler;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Table-driven risk scoring. The rules in {@code assets/risk_rules.json} are compiled
+ * into flat primitive arrays, and one pass over them yields the dopamine risk, the
+ * addiction level and the primary reason together. Rules read the {@link FeatureEncoder}
+ * layout; their thresholds are normalized at compile time so the encoded vector is
+ * compared as is.
+ *
+ * Each rule tests one feature against an open interval and belongs to a group. Only the
+ * first matching rule of a group (in file order) counts, which is how tiered thresholds
+ * are written. Dropping a rule file at {@code files/risk_rules.json} replaces the compiled
+ * set on the next maintenance check. The risk-level thresholds the rest of the app uses
+ * come from the same file.
+ */
+public class RuleEngine {
+    private static final String TAG = "RuleEngine";
+    private static final String RULES_FILE = "risk_rules.json";
+    private static final long RELOAD_CHECK_MINUTES = 1;
+    private static final int MAX_GROUPS = 64; // one bit each in the evaluation mask
+
+    // Rule feature names: layout index and the factor converting the rule's unit to the layout's
+    private static final String[] FEATURE_NAMES = {
+            "duration_hours", "app_category", "scrolls_per_minute",
+            "hour_of_day", "binge_flag", "consecutive_minutes",
+            "duration_z", "unlock_rate_z", "intensity_z"};
+    private static final int[] FEATURE_INDEX = {
+            FeatureEncoder.DURATION_HOURS, FeatureEncoder.APP_CATEGORY, FeatureEncoder.SCROLLS_PER_MINUTE,
+            FeatureEncoder.TIME_OF_DAY, FeatureEncoder.BINGE_FLAG, FeatureEncoder.CONSECUTIVE_SAME_APP,
+            FeatureEncoder.DURATION_Z, FeatureEncoder.UNLOCK_RATE_Z, FeatureEncoder.INTENSITY_Z};
+    private static final float[] FEATURE_UNIT = {1f, 1f, 1f, 1f / 24f, 1f, 1f, 1f, 1f, 1f};
+
+    public static final int LEVEL_LOW = 0;
+    public static final int LEVEL_MEDIUM = 1;
+    public static final int LEVEL_HIGH = 2;
+    private static final String[] RISK_LEVEL_NAMES = {"LOW", "MEDIUM", "HIGH"};
+
+    /** Output of one evaluation; reuse an instance to evaluate without allocating. */
+    public static final class Evaluation {
+        public float dopamineRisk;
+        public int addictionLevel;
+        /** Index for {@link #getReason}; 0 is the default reason. */
+        public int reason;
+    }
+
+    /** A compiled rule file; immutable once published. */
+    private static final class RuleSet {
+        final float[] riskThresholds;
+        final float[] levelThresholds;
+        final String[] reasons;
+
+        final int size;
+        final int[] feature;
+        final float[] lower;
+        final float[] upper;
+        final long[] groupBit;
+        final float[] dopamineWeight;
+        final float[] addictionWeight;
+        final int[] reasonIndex;
+
+        RuleSet(float[] riskThresholds, float[] levelThresholds, String[] reasons, int size) {
+            this.riskThresholds = riskThresholds;
+            this.levelThresholds = levelThresholds;
+            this.reasons = reasons;
+            this.size = size;
+            this.feature = new int[size];
+            this.lower = new float[size];
+            this.upper = new float[size];
+            this.groupBit = new long[size];
+            this.dopamineWeight = new float[size];
+            this.addictionWeight = new float[size];
+            this.reasonIndex = new int[size];
+        }
+
+        void evaluate(float[] features, int offset, Evaluation out) {
+            long matched = 0L;
+            float dopamine = 0f;
+            float score = 0f;
+            int reason = 0;
+            // No early exits: every rule costs the same few compares and multiply-adds
+            for (int i = 0; i < size; i++) {
+                float x = features[offset + feature[i]];
+                long bit = groupBit[i];
+                int hit = (x > lower[i] & x < upper[i] & (matched & bit) == 0L) ? 1 : 0;
+                matched |= bit & -hit;
+                dopamine += hit * dopamineWeight[i];
+                score += hit * addictionWeight[i];
+                reason += hit * reasonIndex[i];
+            }
+            out.dopamineRisk = Math.min(1f, dopamine);
+            out.addictionLevel = (score >= levelThresholds[0] ? 1 : 0) + (score >= levelThresholds[1] ? 1 : 0);
+            out.reason = reason;
+        }
+
+        // Rule-major over the batch columns: each rule is one linear scan of its feature
+        void evaluate(FeatureEncoder.Batch batch, float[] dopamineOut, int[] levelOut, int[] reasonOut) {
+            int rows = batch.size;
+            long[] matched = batch.groupMask;
+            float[] score = batch.levelScore;
+            Arrays.fill(matched, 0, rows, 0L);
+            Arrays.fill(score, 0, rows, 0f);
+            Arrays.fill(dopamineOut, 0, rows, 0f);
+            Arrays.fill(reasonOut, 0, rows, 0);
+
+            float[] values = batch.values;
+            for (int i = 0; i < size; i++) {
+                int base = feature[i] * batch.capacity;
+                float lo = lower[i];
+                float hi = upper[i];
+                long bit = groupBit[i];
+                float dopamine = dopamineWeight[i];
+                float addiction = addictionWeight[i];
+                int reason = reasonIndex[i];
+                for (int r = 0; r < rows; r++) {
+                    float x = values[base + r];
+                    int hit = (x > lo & x < hi & (matched[r] & bit) == 0L) ? 1 : 0;
+                    matched[r] |= bit & -hit;
+                    dopamineOut[r] += hit * dopamine;
+                    score[r] += hit * addiction;
+                    reasonOut[r] += hit * reason;
+                }
+            }
+            for (int r = 0; r < rows; r++) {
+                dopamineOut[r] = Math.min(1f, dopamineOut[r]);
+                levelOut[r] = (score[r] >= levelThresholds[0] ? 1 : 0) + (score[r] >= levelThresholds[1] ? 1 : 0);
+            }
+        }
+
+        int riskTier(float risk) {
+            return (risk >= riskThresholds[0] ? 1 : 0) + (risk >= riskThresholds[1] ? 1 : 0);
+        }
+
+        String reason(int reason) {
+            return reason >= 0 && reason < reasons.length ? reasons[reason] : reasons[0];
+        }
+    }
+
+    /**
+     * Cache key over the rule intervals a feature vector falls into, for one rule set. Each
+     * keyed feature is reduced to its position among the rules' interval ends (and any extra
+     * cuts the caller tests itself): below, on or above each one, which is exactly what the
+     * strict comparisons see. Two vectors share a key only if no rule or cut can tell them
+     * apart; features no rule reads are left out.
+     *
+     * A scheme holds on to the rule set it was built from and scores with it, so results
+     * stored under its keys never come from rules published in between.
+     */
+    static final class KeyScheme {
+        /** Returned when a vector cannot be keyed; no valid key is negative. */
+        static final long NO_KEY = -1L;
+
+        final long generation;
+        private final RuleSet rules;
+        private final int[] features;
+        private final float[][] cuts;
+        private final int[] shifts;
+        private final boolean cacheable;
+
+        private KeyScheme(long generation, RuleSet rules, int[] extraFeature, float[] extraCut, int maxBits) {
+            this.generation = generation;
+            this.rules = rules;
+            ArrayList<Integer> keyed = new ArrayList<>();
+            ArrayList<float[]> keyedCuts = new ArrayList<>();
+            float[] buffer = new float[2 * rules.size + extraCut.length];
+            for (int f = 0; f < FeatureEncoder.FEATURE_COUNT; f++) {
+                int count = 0;
+                for (int i = 0; i < rules.size; i++) {
+                    if (rules.feature[i] != f) continue;
+                    if (!Float.isInfinite(rules.lower[i])) buffer[count++] = rules.lower[i];
+                    if (!Float.isInfinite(rules.upper[i])) buffer[count++] = rules.upper[i];
+                }
+                for (int i = 0; i < extraCut.length; i++) {
+                    if (extraFeature[i] == f) buffer[count++] = extraCut[i];
+                }
+                if (count == 0) continue;
+                Arrays.sort(buffer, 0, count);
+                int distinct = 1;
+                for (int i = 1; i < count; i++) {
+                    if (buffer[i] != buffer[distinct - 1]) buffer[distinct++] = buffer[i];
+                }
+                keyed.add(f);
+                keyedCuts.add(Arrays.copyOf(buffer, distinct));
+            }
+
+            features = new int[keyed.size()];
+            cuts = keyedCuts.toArray(new float[0][]);
+            shifts = new int[keyed.size()];
+            int bits = 0;
+            for (int k = 0; k < features.length; k++) {
+                features[k] = keyed.get(k);
+                shifts[k] = bits;
+                bits += 32 - Integer.numberOfLeadingZeros(2 * cuts[k].length); // 2n + 1 positions
+            }
+            cacheable = bits <= maxBits;
+        }
+
+        /** The key of the vector at {@code offset}, or {@link #NO_KEY}. */
+        long keyOf(float[] vector, int offset) {
+            if (!cacheable) return NO_KEY;
+            long key = 0L;
+            for (int k = 0; k < features.length; k++) {
+                float x = vector[offset + features[k]];
+                if (Float.isNaN(x) || Float.isInfinite(x)) return NO_KEY;
+                long position = 0;
+                for (float cut : cuts[k]) {
+                    position += (cut < x ? 1 : 0) + (cut <= x ? 1 : 0);
+                }
+                key |= position << shifts[k];
+            }
+            return key;
+        }
+
+        /** Scores with the rules this scheme was built from. */
+        void evaluate(float[] vector, int offset, Evaluation out) {
+            rules.evaluate(vector, offset, out);
+        }
+
+        String getReason(int reason) {
+            return rules.reason(reason);
+        }
+    }
+
+    // Thresholds only, used until a rule file has been loaded
+    private static final RuleSet FALLBACK = new RuleSet(new float[]{0.4f, 0.7f}, new float[]{3f, 6f},
+            new String[]{"Moderate usage pattern"}, 0);
+
+    // Volatile so the static risk tiers can read it without the class lock
+    private static volatile RuleEngine instance;
+
+
+    private final Context context;
+    private final FeatureEncoder encoder;
+    private final File overrideFile;
+    private volatile RuleSet active = FALLBACK;
+    private volatile long generation = 0;
+    private volatile long fingerprint = 0;
+    private long loadedOverrideStamp = -1;
+
+    private RuleEngine(Context context) {
+        this.context = context;
+        this.encoder = FeatureEncoder.getInstance(context);
+        this.overrideFile = new File(context.getFilesDir(), RULES_FILE);
+
+        reload();
+        MaintenanceScheduler.getInstance().schedule(this::reloadIfChanged,
+                RELOAD_CHECK_MINUTES, RELOAD_CHECK_MINUTES, TimeUnit.MINUTES);
+    }
+
+    // Publishes rules compiled from source, with no file to reload from; for tests
+    RuleEngine(FeatureEncoder encoder, String source) throws JSONException {
+        this.context = null;
+        this.encoder = encoder;
+        this.overrideFile = null;
+        publish(source);
+    }
+
+    public static synchronized RuleEngine getInstance(Context context) {
+        if (instance == null) {
+            instance = new RuleEngine(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    // ---------------- Evaluation ----------------
+
+    public Evaluation evaluate(EnhancedSessionData data) {
+        float[] features = new float[FeatureEncoder.FEATURE_COUNT];
+        encoder.encode(data, features, 0);
+        Evaluation out = new Evaluation();
+        active.evaluate(features, 0, out);
+        return out;
+    }
+
+    /** Scores a vector in the {@link FeatureEncoder} layout starting at {@code offset}. */
+    public void evaluate(float[] features, int offset, Evaluation out) {
+        active.evaluate(features, offset, out);
+    }
+
+    /**
+     * Scores every row of {@code batch}, all against the same rule set even if a reload
+     * lands midway. The output arrays need at least {@code batch.size()} slots.
+     */
+    public void evaluateBatch(FeatureEncoder.Batch batch, float[] dopamineOut, int[] levelOut, int[] reasonOut) {
+        active.evaluate(batch, dopamineOut, levelOut, reasonOut);
+    }
+
+    public String getReason(int reason) {
+        return active.reason(reason);
+    }
+
+    /** Changes whenever a new rule set is published; results scored earlier are stale. */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Checksum of the rule file the active set was compiled from, stable across restarts;
+     * 0 before any file has loaded.
+     */
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * A cache key scheme for the active rules, packing into at most {@code maxBits} bits.
+     * {@code extraFeature[i]} and {@code extraCut[i]} add thresholds, in encoded units, that
+     * the caller compares itself. Build a new one when the generation changes.
+     */
+    synchronized KeyScheme newKeyScheme(int[] extraFeature, float[] extraCut, int maxBits) {
+        KeyScheme scheme = new KeyScheme(generation, active, extraFeature, extraCut, maxBits);
+        if (!scheme.cacheable) Log.w(TAG, "Rules have too many thresholds to key in " + maxBits + " bits");
+        return scheme;
+    }
+
+    /** LEVEL_LOW, LEVEL_MEDIUM or LEVEL_HIGH for a 0-1 risk score. */
+    public int getRiskTier(float risk) {
+        return active.riskTier(risk);
+    }
+
+    /** "LOW", "MEDIUM" or "HIGH" for a 0-1 risk score. */
+    public String getRiskLevel(float risk) {
+        return RISK_LEVEL_NAMES[active.riskTier(risk)];
+    }
+
+    /**
+     * {@link #getRiskTier} of the shared engine, for value objects that hold no context;
+     * the built-in thresholds until it has been created.
+     */
+    public static int riskTier(float risk) {
+        RuleEngine shared = instance;
+        return shared != null ? shared.getRiskTier(risk) : FALLBACK.riskTier(risk);
+    }
+
+    /** {@link #getRiskLevel} of the shared engine; see {@link #riskTier}. */
+    public static String riskLevel(float risk) {
+        return RISK_LEVEL_NAMES[riskTier(risk)];
+    }
+
+    // ---------------- Loading ----------------
+
+    /**
+     * Recompiles from the override file if present, otherwise from the bundled asset. A
+     * file that fails to parse or compile leaves the current rules in place.
+     */
+    public synchronized void reload() {
+        long stamp = overrideStamp();
+        try (InputStream in = stamp >= 0
+                ? new FileInputStream(overrideFile)
+                : context.getAssets().open(RULES_FILE)) {
+            publish(FeatureEncoder.readFully(in));
+            loadedOverrideStamp = stamp;
+            Log.d(TAG, "Compiled " + active.size + " rules from "
+                    + (stamp >= 0 ? overrideFile : "assets"));
+        } catch (IOException | JSONException | RuntimeException e) {
+            Log.e(TAG, "Failed to load risk rules, keeping " + active.size + " rules", e);
+        }
+    }
+
+    private synchronized void publish(String source) throws JSONException {
+        active = compile(new JSONObject(source), encoder);
+        CRC32 checksum = new CRC32();
+        checksum.update(source.getBytes(StandardCharsets.UTF_8));
+        fingerprint = checksum.getValue();
+        generation++;
+    }
+
+    private synchronized void reloadIfChanged() {
+        if (overrideStamp() != loadedOverrideStamp) {
+            reload();
+        }
+    }
+
+    // lastModified and length together; -1 when there is no override
+    private long overrideStamp() {
+        if (!overrideFile.isFile()) return -1;
+        return overrideFile.lastModified() * 31 + overrideFile.length();
+    }
+
+    private static RuleSet compile(JSONObject json, FeatureEncoder encoder) throws JSONException {
+        JSONArray dopamineRules = json.getJSONArray("dopamineRules");
+        JSONArray addictionRules = json.getJSONArray("addictionRules");
+        JSONArray reasonRules = json.getJSONArray("reasonRules");
+
+        ArrayList<String> reasons = new ArrayList<>();
+        reasons.add(json.getString("defaultReason"));
+        for (int i = 0; i < reasonRules.length(); i++) {
+            reasons.add(reasonRules.getJSONObject(i).getString("reason"));
+        }
+
+        RuleSet rules = new RuleSet(
+                readThresholds(json, "riskLevelThresholds"),
+                readThresholds(json, "addictionLevelThresholds"),
+                reasons.toArray(new String[0]),
+                dopamineRules.length() + addictionRules.length() + reasonRules.length());
+
+        HashMap<String, Integer> groups = new HashMap<>();
+        int index = 0;
+        for (int i = 0; i < dopamineRules.length(); i++, index++) {
+            JSONObject rule = dopamineRules.getJSONObject(i);
+            compileRule(rules, encoder, index, rule, groups, "dopamine:" + rule.getString("group"));
+            rules.dopamineWeight[index] = (float) rule.getDouble("weight");
+        }
+        for (int i = 0; i < addictionRules.length(); i++, index++) {
+            JSONObject rule = addictionRules.getJSONObject(i);
+            compileRule(rules, encoder, index, rule, groups, "addiction:" + rule.getString("group"));
+            rules.addictionWeight[index] = (float) rule.getDouble("weight");
+        }
+        // Reasons form one group, so the first matching reason wins
+        for (int i = 0; i < reasonRules.length(); i++, index++) {
+            compileRule(rules, encoder, index, reasonRules.getJSONObject(i), groups, "reason");
+            rules.reasonIndex[index] = i + 1;
+        }
+        return rules;
+    }
+
+    // "above" and "below" are strict bounds and may be combined; "equals" matches integral features
+    private static void compileRule(RuleSet rules, FeatureEncoder encoder, int index, JSONObject rule,
+                                    HashMap<String, Integer> groups, String group) throws JSONException {
+        String featureName = rule.getString("feature");
+        int feature = -1;
+        for (int f = 0; f < FEATURE_NAMES.length; f++) {
+            if (FEATURE_NAMES[f].equals(featureName)) feature = f;
+        }
+        if (feature < 0) throw new JSONException("Unknown feature " + featureName);
+
+        float lower = Float.NEGATIVE_INFINITY;
+        float upper = Float.POSITIVE_INFINITY;
+        if (rule.has("equals")) {
+            float value = (float) rule.getDouble("equals");
+            lower = value - 0.5f;
+            upper = value + 0.5f;
+        }
+        if (rule.has("above")) lower = (float) rule.getDouble("above");
+        if (rule.has("below")) upper = (float) rule.getDouble("below");
+
+        Integer bit = groups.get(group);
+        if (bit == null) {
+            if (groups.size() == MAX_GROUPS) throw new JSONException("More than " + MAX_GROUPS + " rule groups");
+            bit = groups.size();
+            groups.put(group, bit);
+        }
+
+        // Standardizing is monotonic, so the interval test is unchanged in encoded units
+        int layoutIndex = FEATURE_INDEX[feature];
+        rules.feature[index] = layoutIndex;
+        rules.lower[index] = encoder.normalize(layoutIndex, lower * FEATURE_UNIT[feature]);
+        rules.upper[index] = encoder.normalize(layoutIndex, upper * FEATURE_UNIT[feature]);
+        rules.groupBit[index] = 1L << bit;
+    }
+
+    private static float[] readThresholds(JSONObject json, String key) throws JSONException {
+        JSONArray values = json.getJSONArray(key);
+        if (values.length() != 2) throw new JSONException(key + " needs two ascending values");
+        float low = (float) values.getDouble(0);
+        float high = (float) values.getDouble(1);
+        if (low > high) throw new JSONException(key + " needs two ascending values");
+        return new float[]{low, high};
+    }
+}
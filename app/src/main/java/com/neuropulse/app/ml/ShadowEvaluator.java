@@ -0,0 +1,320 @@
+// ShadowEvaluator.java
+// Location: app/src/main/java/com/neuropulse/app/ml/ShadowEvaluator.java
+package com.neuropulse.app.ml;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.neuropulse.app.database.EnhancedSessionData;
+import com.neuropulse.app.utils.MaintenanceScheduler;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Side-by-side evaluation of the scoring paths. Every prediction the
+ * {@link AddictionPredictor} serves is re-scored here by the STANDARD rules (the
+ * reference) and by each candidate path, recording how their addiction levels and risk
+ * levels agree and how long each path takes.
+ *
+ * Work runs on one low-priority thread behind a short queue; when the queue is full the
+ * session is dropped rather than delaying the caller. The model path gets its own
+ * interpreters so it never waits on the primary path's. The counters persist to a few
+ * hundred bytes in {@code shadow_stats.bin}.
+ */
+public class ShadowEvaluator {
+    private static final String TAG = "ShadowEvaluator";
+    private static final String STATS_FILE = "shadow_stats.bin";
+    private static final int STATS_VERSION = 1;
+    private static final long PERSIST_INTERVAL_MINUTES = 5;
+    private static final int QUEUE_CAPACITY = 8;
+
+    public static final AddictionPredictor.Mode REFERENCE = AddictionPredictor.Mode.STANDARD;
+    private static final AddictionPredictor.Mode[] CANDIDATES = {
+            AddictionPredictor.Mode.OPTIMIZED, AddictionPredictor.Mode.TFLITE};
+    private static final int PATHS = AddictionPredictor.Mode.values().length;
+    private static final int LEVELS = 3;
+    // Bucket b holds latencies in [2^(b-1), 2^b) microseconds
+    private static final int LATENCY_BUCKETS = 16;
+
+    private final Context context;
+    private final AddictionPredictor predictor;
+    private final ThreadPoolExecutor executor;
+    private final LongAdder dropped = new LongAdder();
+    private final File statsFile;
+
+    // Shadow thread only
+    private final RuleEngine.Evaluation reference = new RuleEngine.Evaluation();
+    private final RuleEngine.Evaluation candidate = new RuleEngine.Evaluation();
+    private TfLiteInferenceEngine engine;
+    private boolean modelUnavailable = false;
+
+    // Indexed [path][reference level][path level]
+    private final int[] levelMatrix = new int[PATHS * LEVELS * LEVELS];
+    private final int[] riskMatrix = new int[PATHS * LEVELS * LEVELS];
+    private final double[] dopamineDelta = new double[PATHS];
+    private final int[] latencyHistograms = new int[PATHS * LATENCY_BUCKETS];
+    private long sessionCount = 0;
+    private long droppedPersisted = 0;
+    private boolean dirty = false;
+
+    ShadowEvaluator(Context context, AddictionPredictor predictor) {
+        this.context = context.getApplicationContext();
+        this.predictor = predictor;
+        this.statsFile = new File(this.context.getNoBackupFilesDir(), STATS_FILE);
+        this.executor = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), r -> {
+                    Thread t = new Thread(r, "ShadowEvaluator");
+                    t.setPriority(Thread.MIN_PRIORITY);
+                    t.setDaemon(true);
+                    return t;
+                }, (task, pool) -> dropped.increment());
+        // No thread is kept while shadow evaluation is off
+        executor.allowCoreThreadTimeOut(true);
+
+        restore();
+        MaintenanceScheduler.getInstance().schedule(this::persistIfDirty,
+                PERSIST_INTERVAL_MINUTES, PERSIST_INTERVAL_MINUTES, TimeUnit.MINUTES);
+    }
+
+    /** Queues {@code sessionData} for scoring on every path; drops it if the queue is full. */
+    void submit(EnhancedSessionData sessionData) {
+        // Sessions are not modified once scored, so the shadow thread can read them as is
+        executor.execute(() -> evaluate(sessionData));
+    }
+
+    // ---------------- Queries ----------------
+
+    public synchronized long getSessionCount() {
+        return sessionCount;
+    }
+
+    /** Sessions skipped because the shadow queue was full, including earlier runs. */
+    public long getDroppedCount() {
+        synchronized (this) {
+            return droppedPersisted + dropped.sum();
+        }
+    }
+
+    /** Fraction of sessions where {@code path} gave the reference's addiction level; -1 if none. */
+    public synchronized float getLevelAgreement(AddictionPredictor.Mode path) {
+        return agreement(levelMatrix, path);
+    }
+
+    /** Fraction of sessions where {@code path} gave the reference's risk level; -1 if none. */
+    public synchronized float getRiskAgreement(AddictionPredictor.Mode path) {
+        return agreement(riskMatrix, path);
+    }
+
+    /** Addiction-level counts, [reference level][path level]. */
+    public synchronized int[][] getLevelMatrix(AddictionPredictor.Mode path) {
+        return matrix(levelMatrix, path);
+    }
+
+    /** Risk-level counts (LEVEL_LOW..LEVEL_HIGH), [reference level][path level]. */
+    public synchronized int[][] getRiskMatrix(AddictionPredictor.Mode path) {
+        return matrix(riskMatrix, path);
+    }
+
+    /**
+     * Upper bound of the bucket holding the given percentile (0-1] of the path's scoring
+     * time, encoding included, in microseconds; -1 if none were recorded.
+     */
+    public synchronized long getLatencyPercentile(AddictionPredictor.Mode path, float percentile) {
+        int base = path.ordinal() * LATENCY_BUCKETS;
+        int total = 0;
+        for (int b = 0; b < LATENCY_BUCKETS; b++) total += latencyHistograms[base + b];
+        if (total == 0) return -1;
+
+        int target = Math.max(1, (int) Math.ceil(total * percentile));
+        int seen = 0;
+        for (int b = 0; b < LATENCY_BUCKETS; b++) {
+            seen += latencyHistograms[base + b];
+            if (seen >= target) return 1L << b;
+        }
+        return 1L << (LATENCY_BUCKETS - 1);
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder sb = new StringBuilder(String.format(Locale.US,
+                "Shadow evaluation over %d sessions (%d dropped); %s p50 %dus p95 %dus",
+                sessionCount, getDroppedCount(), REFERENCE,
+                getLatencyPercentile(REFERENCE, 0.5f), getLatencyPercentile(REFERENCE, 0.95f)));
+        for (AddictionPredictor.Mode path : CANDIDATES) {
+            int samples = total(levelMatrix, path);
+            if (samples == 0) continue;
+            sb.append(String.format(Locale.US,
+                    "; %s: addiction level %.1f%% agree, risk level %.1f%% agree, mean |dopamine delta| %.3f, " +
+                            "p50 %dus p95 %dus",
+                    path, agreement(levelMatrix, path) * 100, agreement(riskMatrix, path) * 100,
+                    dopamineDelta[path.ordinal()] / samples,
+                    getLatencyPercentile(path, 0.5f), getLatencyPercentile(path, 0.95f)));
+        }
+        return sb.toString();
+    }
+
+    private static float agreement(int[] matrices, AddictionPredictor.Mode path) {
+        int base = path.ordinal() * LEVELS * LEVELS;
+        int total = total(matrices, path);
+        if (total == 0) return -1f;
+        int agreed = 0;
+        for (int level = 0; level < LEVELS; level++) agreed += matrices[base + level * LEVELS + level];
+        return agreed / (float) total;
+    }
+
+    private static int total(int[] matrices, AddictionPredictor.Mode path) {
+        int base = path.ordinal() * LEVELS * LEVELS;
+        int total = 0;
+        for (int i = 0; i < LEVELS * LEVELS; i++) total += matrices[base + i];
+        return total;
+    }
+
+    private static int[][] matrix(int[] matrices, AddictionPredictor.Mode path) {
+        int base = path.ordinal() * LEVELS * LEVELS;
+        int[][] copy = new int[LEVELS][];
+        for (int level = 0; level < LEVELS; level++) {
+            copy[level] = Arrays.copyOfRange(matrices, base + level * LEVELS, base + (level + 1) * LEVELS);
+        }
+        return copy;
+    }
+
+    // ---------------- Scoring ----------------
+
+    private void evaluate(EnhancedSessionData sessionData) {
+        try {
+            long start = System.nanoTime();
+            predictor.scorePath(REFERENCE, sessionData, null, reference);
+            long referenceNanos = System.nanoTime() - start;
+            synchronized (this) {
+                sessionCount++;
+                recordLatency(REFERENCE, referenceNanos);
+                dirty = true;
+            }
+
+            for (AddictionPredictor.Mode path : CANDIDATES) {
+                TfLiteInferenceEngine pathEngine = null;
+                if (path == AddictionPredictor.Mode.TFLITE) {
+                    pathEngine = getEngine();
+                    if (pathEngine == null) continue;
+                }
+                start = System.nanoTime();
+                predictor.scorePath(path, sessionData, pathEngine, candidate);
+                long nanos = System.nanoTime() - start;
+                synchronized (this) {
+                    recordComparison(path, nanos);
+                }
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Shadow evaluation failed", e);
+        }
+    }
+
+    private void recordComparison(AddictionPredictor.Mode path, long nanos) {
+        int base = path.ordinal() * LEVELS * LEVELS;
+        levelMatrix[base + level(reference.addictionLevel) * LEVELS + level(candidate.addictionLevel)]++;
+        riskMatrix[base + RuleEngine.riskTier(reference.dopamineRisk) * LEVELS
+                + RuleEngine.riskTier(candidate.dopamineRisk)]++;
+        dopamineDelta[path.ordinal()] += Math.abs(reference.dopamineRisk - candidate.dopamineRisk);
+        recordLatency(path, nanos);
+    }
+
+    private void recordLatency(AddictionPredictor.Mode path, long nanos) {
+        long micros = Math.max(0L, nanos) / 1000L;
+        int bucket = Math.min(LATENCY_BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+        latencyHistograms[path.ordinal() * LATENCY_BUCKETS + bucket]++;
+    }
+
+    private static int level(int addictionLevel) {
+        return Math.min(Math.max(addictionLevel, 0), LEVELS - 1);
+    }
+
+    // Created on the shadow thread at first use; a failure skips the model path for good
+    private TfLiteInferenceEngine getEngine() {
+        if (engine != null || modelUnavailable) return engine;
+        if (!FeatureEncoder.getInstance(context).hasStats()) {
+            modelUnavailable = true;
+            Log.w(TAG, "No feature scaling for the TFLite models, not shadowing them");
+            return null;
+        }
+        try {
+            engine = new TfLiteInferenceEngine(context);
+        } catch (Exception | LinkageError e) {
+            modelUnavailable = true;
+            Log.w(TAG, "TFLite models unavailable, not shadowing them", e);
+        }
+        return engine;
+    }
+
+    // ---------------- Persistence ----------------
+
+    private void persistIfDirty() {
+        File tmp = new File(statsFile.getPath() + ".tmp");
+        synchronized (this) {
+            long droppedNow = dropped.sum();
+            if (!dirty && droppedNow == 0) return;
+            dirty = false;
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                out.writeInt(STATS_VERSION);
+                out.writeLong(sessionCount);
+                out.writeLong(droppedPersisted + droppedNow);
+                for (int path = 0; path < PATHS; path++) {
+                    for (int i = 0; i < LEVELS * LEVELS; i++) out.writeInt(levelMatrix[path * LEVELS * LEVELS + i]);
+                    for (int i = 0; i < LEVELS * LEVELS; i++) out.writeInt(riskMatrix[path * LEVELS * LEVELS + i]);
+                    out.writeDouble(dopamineDelta[path]);
+                    for (int b = 0; b < LATENCY_BUCKETS; b++) out.writeInt(latencyHistograms[path * LATENCY_BUCKETS + b]);
+                }
+            } catch (IOException e) {
+                dirty = true;
+                Log.w(TAG, "Failed to persist shadow stats", e);
+                return;
+            }
+            // Only what was written moves over; drops counted meanwhile stay in the adder
+            dropped.add(-droppedNow);
+            droppedPersisted += droppedNow;
+        }
+        if (!tmp.renameTo(statsFile)) {
+            synchronized (this) {
+                dirty = true;
+            }
+            Log.w(TAG, "Failed to replace shadow stats file");
+        }
+    }
+
+    private synchronized void restore() {
+        if (!statsFile.exists()) return;
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(statsFile)))) {
+            if (in.readInt() != STATS_VERSION) return;
+            sessionCount = in.readLong();
+            droppedPersisted = in.readLong();
+            for (int path = 0; path < PATHS; path++) {
+                for (int i = 0; i < LEVELS * LEVELS; i++) levelMatrix[path * LEVELS * LEVELS + i] = in.readInt();
+                for (int i = 0; i < LEVELS * LEVELS; i++) riskMatrix[path * LEVELS * LEVELS + i] = in.readInt();
+                dopamineDelta[path] = in.readDouble();
+                for (int b = 0; b < LATENCY_BUCKETS; b++) latencyHistograms[path * LATENCY_BUCKETS + b] = in.readInt();
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Discarding unreadable shadow stats", e);
+            sessionCount = 0;
+            droppedPersisted = 0;
+            Arrays.fill(levelMatrix, 0);
+            Arrays.fill(riskMatrix, 0);
+            Arrays.fill(dopamineDelta, 0);
+            Arrays.fill(latencyHistograms, 0);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+// TfLiteInferenceEngine.java
+// Location: app/src/main/java/com/neuropulse/app/ml/TfLiteInferenceEngine.java
+package com.neuropulse.app.ml;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.os.SystemClock;
+
+import org.tensorflow.lite.Interpreter;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Runs the bundled dopamine and addiction models with TensorFlow Lite. Both models are
+ * memory-mapped straight from the APK, the interpreters are created and warmed once, and
+ * the direct input/output buffers are reused for every call, so an inference allocates
+ * nothing. Calls are serialized; one inference of these small MLPs takes well under a
+ * millisecond.
+ *
+ * Input is the model part of the {@link FeatureEncoder} layout, already standardized.
+ *
+ * The assets must be stored uncompressed for mapping to work (see androidResources in
+ * app/build.gradle).
+ */
+public class TfLiteInferenceEngine implements AutoCloseable {
+    private static final String DOPAMINE_MODEL = "dopamine_model.tflite";
+    private static final String ADDICTION_MODEL = "addiction_model.tflite";
+
+    public static final int ADDICTION_CLASSES = 3;
+    /** Layout of the array filled by {@link #infer}: dopamine probability, then class probabilities. */
+    public static final int OUTPUT_SIZE = 1 + ADDICTION_CLASSES;
+
+    private final Interpreter dopamineInterpreter;
+    private final Interpreter addictionInterpreter;
+    private final ByteBuffer input;
+    private final FloatBuffer inputFloats;
+    private final ByteBuffer dopamineOutput;
+    private final ByteBuffer addictionOutput;
+
+    private long inferenceCount = 0;
+    private long totalInferenceNanos = 0;
+
+    public TfLiteInferenceEngine(Context context) throws IOException {
+        Interpreter.Options options = new Interpreter.Options().setNumThreads(1);
+        this.dopamineInterpreter = new Interpreter(mapAsset(context, DOPAMINE_MODEL), options);
+        this.addictionInterpreter = new Interpreter(mapAsset(context, ADDICTION_MODEL), options);
+
+        this.input = allocateFloats(FeatureEncoder.MODEL_FEATURE_COUNT);
+        this.inputFloats = input.asFloatBuffer();
+        this.dopamineOutput = allocateFloats(1);
+        this.addictionOutput = allocateFloats(ADDICTION_CLASSES);
+
+        // First run allocates the interpreters' tensors; keep that off the real-time tick
+        synchronized (this) {
+            for (int i = 0; i < FeatureEncoder.MODEL_FEATURE_COUNT; i++) inputFloats.put(i, 0f);
+            runModels();
+        }
+    }
+
+    /**
+     * Scores one encoded session starting at {@code offset}. {@code out} receives
+     * {@link #OUTPUT_SIZE} values: the dopamine spike probability followed by the
+     * healthy / at-risk / high-risk probabilities.
+     */
+    public synchronized void infer(float[] features, int offset, float[] out) {
+        long start = SystemClock.elapsedRealtimeNanos();
+
+        inputFloats.position(0);
+        inputFloats.put(features, offset, FeatureEncoder.MODEL_FEATURE_COUNT);
+        runModels();
+
+        out[0] = dopamineOutput.getFloat(0);
+        for (int c = 0; c < ADDICTION_CLASSES; c++) {
+            out[1 + c] = addictionOutput.getFloat(c * 4);
+        }
+
+        totalInferenceNanos += SystemClock.elapsedRealtimeNanos() - start;
+        inferenceCount++;
+    }
+
+    /** Mean wall time of {@link #infer}, in microseconds. */
+    public synchronized float getAverageLatencyMicros() {
+        return inferenceCount > 0 ? totalInferenceNanos / 1000f / inferenceCount : 0f;
+    }
+
+    @Override
+    public synchronized void close() {
+        dopamineInterpreter.close();
+        addictionInterpreter.close();
+    }
+
+    private void runModels() {
+        input.rewind();
+        dopamineOutput.rewind();
+        dopamineInterpreter.run(input, dopamineOutput);
+        input.rewind();
+        addictionOutput.rewind();
+        addictionInterpreter.run(input, addictionOutput);
+    }
+
+    private static ByteBuffer allocateFloats(int count) {
+        return ByteBuffer.allocateDirect(count * 4).order(ByteOrder.nativeOrder());
+    }
+
+    private static MappedByteBuffer mapAsset(Context context, String name) throws IOException {
+        try (AssetFileDescriptor descriptor = context.getAssets().openFd(name);
+             FileInputStream stream = new FileInputStream(descriptor.getFileDescriptor())) {
+            // The mapping stays valid after the stream and descriptor are closed
+            return stream.getChannel().map(FileChannel.MapMode.READ_ONLY,
+                    descriptor.getStartOffset(), descriptor.getDeclaredLength());
+        }
+    }
+}
@@ -0,0 +1,41 @@
+// PackageChangeReceiver.java
+// Location: app/src/main/java/com/neuropulse/app/receivers/PackageChangeReceiver.java
+package com.neuropulse.app.receivers;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.net.Uri;
+
+import com.neuropulse.app.features.AppMetadataCache;
+
+/**
+ * Invalidates {@link AppMetadataCache} entries when apps are installed, removed or updated.
+ * Registered at runtime by the cache itself, since these broadcasts are not delivered to
+ * manifest receivers on API 26+.
+ */
+public class PackageChangeReceiver extends BroadcastReceiver {
+    private final AppMetadataCache cache;
+
+    public PackageChangeReceiver(AppMetadataCache cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        Uri data = intent.getData();
+        String packageName = data != null ? data.getSchemeSpecificPart() : null;
+        if (packageName == null) return;
+
+        String action = intent.getAction();
+        if (Intent.ACTION_PACKAGE_REMOVED.equals(action)) {
+            // An update sends REMOVED then ADDED/REPLACED; only a real uninstall drops the entry
+            if (intent.getBooleanExtra(Intent.EXTRA_REPLACING, false)) return;
+            cache.invalidate(packageName, true);
+        } else if (Intent.ACTION_PACKAGE_ADDED.equals(action)
+                || Intent.ACTION_PACKAGE_CHANGED.equals(action)
+                || Intent.ACTION_PACKAGE_REPLACED.equals(action)) {
+            cache.invalidate(packageName, false);
+        }
+    }
+}
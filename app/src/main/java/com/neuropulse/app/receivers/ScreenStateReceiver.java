@@ -0,0 +1,60 @@
+// ScreenStateReceiver.java
+// Location: app/src/main/java/com/neuropulse/app/receivers/ScreenStateReceiver.java
+package com.neuropulse.app.receivers;
+
+import android.app.KeyguardManager;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+
+import com.neuropulse.app.features.ScreenStateTracker;
+
+/**
+ * Records SCREEN_ON / SCREEN_OFF / USER_PRESENT into {@link ScreenStateTracker} and
+ * forwards them to the owning service. These broadcasts are only delivered to
+ * receivers registered at runtime; see {@link #createFilter()}.
+ */
+public class ScreenStateReceiver extends BroadcastReceiver {
+
+    public interface Callback {
+        void onScreenOff();
+
+        /** Screen turned on ({@code unlocked} false) or the user unlocked the device. */
+        void onScreenActive(boolean unlocked);
+    }
+
+    private final ScreenStateTracker tracker = ScreenStateTracker.getInstance();
+    private final Callback callback;
+
+    public ScreenStateReceiver(Callback callback) {
+        this.callback = callback;
+    }
+
+    public static IntentFilter createFilter() {
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_SCREEN_ON);
+        filter.addAction(Intent.ACTION_SCREEN_OFF);
+        filter.addAction(Intent.ACTION_USER_PRESENT);
+        return filter;
+    }
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        String action = intent.getAction();
+        long now = System.currentTimeMillis();
+
+        if (Intent.ACTION_SCREEN_OFF.equals(action)) {
+            tracker.onScreenOff(now);
+            callback.onScreenOff();
+        } else if (Intent.ACTION_SCREEN_ON.equals(action)) {
+            tracker.onScreenOn();
+            // Without a secure lock screen USER_PRESENT never arrives; screen on is the unlock
+            KeyguardManager keyguard = context.getSystemService(KeyguardManager.class);
+            boolean unlocked = keyguard != null && !keyguard.isKeyguardLocked() && tracker.onUnlock(now);
+            callback.onScreenActive(unlocked);
+        } else if (Intent.ACTION_USER_PRESENT.equals(action)) {
+            if (tracker.onUnlock(now)) callback.onScreenActive(true);
+        }
+    }
+}
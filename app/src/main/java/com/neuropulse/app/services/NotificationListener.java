@@ -3,47 +3,33 @@ package com.neuropulse.app.services;
 
 import android.service.notification.NotificationListenerService;
 import android.service.notification.StatusBarNotification;
-import android.content.Intent;
-import android.util.Log;
+
+import com.neuropulse.app.features.NotificationEventQueue;
+import com.neuropulse.app.features.PackageIdDictionary;
 
 public class NotificationListener extends NotificationListenerService {
-    private static final String TAG = "NeuropulseNotifListener";
+    private final NotificationEventQueue eventQueue = NotificationEventQueue.getInstance();
+    private final PackageIdDictionary packageIds = PackageIdDictionary.getInstance();
 
     @Override
     public void onNotificationPosted(StatusBarNotification sbn) {
         super.onNotificationPosted(sbn);
 
-        String packageName = sbn.getPackageName();
-        String title = "";
-        String text = "";
-
-        if (sbn.getNotification().extras != null) {
-            title = sbn.getNotification().extras.getString("android.title", "");
-            text = sbn.getNotification().extras.getString("android.text", "");
-        }
-
-        // Log notification for tracking (in production, store in database)
-        Log.d(TAG, String.format("Notification from %s: %s - %s", packageName, title, text));
-
-        // Broadcast to other components if needed
-        Intent intent = new Intent("com.neuropulse.NOTIFICATION_POSTED");
-        intent.putExtra("package", packageName);
-        intent.putExtra("title", title);
-        intent.putExtra("text", text);
-        intent.putExtra("timestamp", System.currentTimeMillis());
-        sendBroadcast(intent);
+        // Ongoing notifications (media, downloads, foreground services) re-post on every
+        // update and are not attention grabs
+        if (sbn.isOngoing()) return;
+
+        // Handed to the in-process tracker; no broadcast, no extras copied
+        eventQueue.offer(NotificationEventQueue.TYPE_POSTED, packageIds.idOf(sbn.getPackageName()),
+                sbn.getKey().hashCode(), NotificationEventQueue.NO_REASON, System.currentTimeMillis());
     }
 
     @Override
-    public void onNotificationRemoved(StatusBarNotification sbn) {
-        super.onNotificationRemoved(sbn);
-
-        String packageName = sbn.getPackageName();
+    public void onNotificationRemoved(StatusBarNotification sbn, RankingMap rankingMap, int reason) {
+        super.onNotificationRemoved(sbn, rankingMap, reason);
+        if (sbn.isOngoing()) return;
 
-        // Broadcast notification removal
-        Intent intent = new Intent("com.neuropulse.NOTIFICATION_REMOVED");
-        intent.putExtra("package", packageName);
-        intent.putExtra("timestamp", System.currentTimeMillis());
-        sendBroadcast(intent);
+        eventQueue.offer(NotificationEventQueue.TYPE_REMOVED, packageIds.idOf(sbn.getPackageName()),
+                sbn.getKey().hashCode(), reason, System.currentTimeMillis());
     }
-}
\ No newline at end of file
+}
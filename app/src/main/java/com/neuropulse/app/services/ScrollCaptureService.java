@@ -0,0 +1,38 @@
+// ScrollCaptureService.java
+// Location: app/src/main/java/com/neuropulse/app/services/ScrollCaptureService.java
+package com.neuropulse.app.services;
+
+import android.accessibilityservice.AccessibilityService;
+import android.view.accessibility.AccessibilityEvent;
+
+import com.neuropulse.app.features.ScrollCounter;
+
+/**
+ * Accessibility service that only listens for TYPE_VIEW_SCROLLED (see
+ * res/xml/scroll_capture_service.xml) and counts them per package. It reads no window
+ * content; the handler only bumps a lock-free counter. The spike detector picks the counts
+ * up on the monitoring tick, so this thread never waits on its lock.
+ */
+public class ScrollCaptureService extends AccessibilityService {
+    private final ScrollCounter scrollCounter = ScrollCounter.getInstance();
+
+    @Override
+    protected void onServiceConnected() {
+        super.onServiceConnected();
+        scrollCounter.onCaptureStarted(System.currentTimeMillis());
+    }
+
+    @Override
+    public void onAccessibilityEvent(AccessibilityEvent event) {
+        if (event.getEventType() != AccessibilityEvent.TYPE_VIEW_SCROLLED) return;
+        CharSequence packageName = event.getPackageName();
+        if (packageName == null) return;
+        // Package names arrive as String, so toString() does not copy
+        scrollCounter.record(packageName.toString());
+    }
+
+    @Override
+    public void onInterrupt() {
+        // Nothing to interrupt: no feedback is produced
+    }
+}
@@ -6,23 +6,36 @@ import android.app.NotificationManager;
 import android.app.Service;
 import android.content.Intent;
 import android.content.SharedPreferences;
+import android.os.BatteryManager;
 import android.os.Build;
 import android.os.Handler;
 import android.os.IBinder;
 import android.os.Looper;
+import android.os.PowerManager;
 import android.util.Log;
 
 import androidx.core.app.NotificationCompat;
 
 import com.neuropulse.app.database.AppDatabase;
 import com.neuropulse.app.database.EnhancedSessionData;
+import com.neuropulse.app.database.SessionWriteBuffer;
 import com.neuropulse.app.features.EnhancedFeatureExtractor;
+import com.neuropulse.app.features.ScreenStateTracker;
+import com.neuropulse.app.features.SpikeDetector;
 import com.neuropulse.app.ml.AddictionPredictor;
+import com.neuropulse.app.ml.RuleEngine;
+import com.neuropulse.app.ml.ShadowEvaluator;
+import com.neuropulse.app.receivers.ScreenStateReceiver;
 import com.neuropulse.app.utils.PerformanceManager;
+import com.neuropulse.app.workers.HistoryRescoreWorker;
+import com.neuropulse.app.workers.RetentionWorker;
 
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -31,17 +44,28 @@ public class UsageMonitorService extends Service {
     private static final String CHANNEL_ID = "usage_monitor_channel";
     private static final int NOTIFICATION_ID = 1001;
     private static final String PREFS_NAME = "usage_monitor_prefs";
+    private static final String KEY_SESSION_START = "session_start_time";
+    private static final String INGEST_STATE_NAME = "monitor_service";
 
     // Monitoring intervals
     private static final long BASE_MONITOR_INTERVAL = 30_000L; // 30s
     private static final long MAX_MONITOR_INTERVAL = 300_000L; // 5min
+    private static final long REAL_TIME_INTERVAL = 5_000L; // 5s, only while the screen is on
     private static final int MAX_RETRY_ATTEMPTS = 3;
     private static final int MAX_CONSECUTIVE_ERRORS = 5;
+    private static final long MAX_SESSION_RESUME_GAP = 10 * 60_000L; // 10min
+
+    // Low-power inference tier: entered at or below LOW_BATTERY_ENTER, left above LOW_BATTERY_EXIT
+    private static final int LOW_BATTERY_ENTER = 20;
+    private static final int LOW_BATTERY_EXIT = 30;
+    private static final long LOW_POWER_MONITOR_INTERVAL = 120_000L; // 2min
+    private static final long LOW_POWER_REAL_TIME_INTERVAL = 15_000L; // 15s
+    private static final int TIER_ACCURACY_SAMPLE = 500;
 
     // Threading
     private Handler mainHandler;
     private ExecutorService monitoringExecutor;
-    private ExecutorService databaseExecutor;
+    private ScheduledExecutorService databaseExecutor;
     private final AtomicBoolean isRunning = new AtomicBoolean(false);
     private final AtomicBoolean isInitialized = new AtomicBoolean(false);
 
@@ -49,8 +73,10 @@ public class UsageMonitorService extends Service {
     private EnhancedFeatureExtractor featureExtractor;
     private AddictionPredictor predictor;
     private AppDatabase database;
+    private SessionWriteBuffer sessionWriteBuffer;
     private PerformanceManager performanceManager;
     private SharedPreferences preferences;
+    private ScreenStateReceiver screenStateReceiver;
 
     // State
     private volatile long sessionStartTime;
@@ -65,6 +91,9 @@ public class UsageMonitorService extends Service {
     // Performance
     private final AtomicInteger consecutiveErrors = new AtomicInteger(0);
     private volatile long currentMonitoringInterval = BASE_MONITOR_INTERVAL;
+    private volatile boolean lowPowerTier = false;
+    private AddictionPredictor.Mode preferredMode;
+    private long rescoredRulesGeneration = -1; // monitoring thread only
 
     // Regular monitoring runnable
     private final Runnable monitoringRunnable = new Runnable() {
@@ -88,8 +117,29 @@ public class UsageMonitorService extends Service {
         @Override
         public void run() {
             if (!isRunning.get()) return;
+            // Suspended while the screen is off; the next screen-on restarts it
+            if (!ScreenStateTracker.getInstance().isInteractive()) return;
             performRealTimeMonitoring();
-            mainHandler.postDelayed(this, 5000); // every 5s
+            mainHandler.postDelayed(this, lowPowerTier ? LOW_POWER_REAL_TIME_INTERVAL : REAL_TIME_INTERVAL);
+        }
+    };
+
+    private final SpikeDetector.SpikeListener spikeListener = new SpikeDetector.SpikeListener() {
+        @Override
+        public void onSpikeStart(String packageName, int channel, float magnitude, long startTime) {
+            Log.i(TAG, String.format("Engagement spike in %s (channel %d, %.1fx threshold)",
+                    packageName, channel, magnitude));
+            // Assess now instead of at the next tick; the detector may call from any thread
+            if (mainHandler != null && !lowPowerTier) {
+                mainHandler.removeCallbacks(realTimeMonitoringRunnable);
+                mainHandler.post(realTimeMonitoringRunnable);
+            }
+        }
+
+        @Override
+        public void onSpikeEnd(SpikeDetector.SpikeEpisode episode) {
+            Log.i(TAG, String.format("Engagement spike in %s ended after %ds (peak %.1fx)",
+                    episode.packageName, episode.getDuration() / 1000, episode.peakMagnitude));
         }
     };
 
@@ -117,22 +167,31 @@ public class UsageMonitorService extends Service {
             t.setPriority(Thread.NORM_PRIORITY - 1);
             return t;
         });
-        databaseExecutor = Executors.newSingleThreadExecutor(r -> {
+        ScheduledThreadPoolExecutor dbExecutor = new ScheduledThreadPoolExecutor(1, r -> {
             Thread t = new Thread(r, "DatabaseThread");
             t.setPriority(Thread.NORM_PRIORITY - 2);
             return t;
         });
+        // A pending timed flush is superseded by the flush on shutdown
+        dbExecutor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        databaseExecutor = dbExecutor;
 
-        sessionStartTime = System.currentTimeMillis();
         preferences = getSharedPreferences(PREFS_NAME, MODE_PRIVATE);
+        registerScreenStateReceiver();
         userId = generateAnonymousUserId();
 
-        featureExtractor = new EnhancedFeatureExtractor(this);
-        predictor = new AddictionPredictor(this, AddictionPredictor.Mode.STANDARD);
+        featureExtractor = new EnhancedFeatureExtractor(this, INGEST_STATE_NAME);
+        SpikeDetector.getInstance().addListener(spikeListener);
+        sessionStartTime = resumeOrStartSession();
+        predictor = AddictionPredictor.getInstance(this);
+        // Every session is also scored on the candidate paths, off this thread
+        predictor.setShadowEvaluation(true);
         performanceManager = PerformanceManager.getInstance(this);
 
         try {
             database = AppDatabase.getInstance(this);
+            sessionWriteBuffer = new SessionWriteBuffer(database.sessionDao(), databaseExecutor);
+            RetentionWorker.schedule(this);
         } catch (Exception e) {
             Log.e(TAG, "Database initialization failed", e);
         }
@@ -140,6 +199,19 @@ public class UsageMonitorService extends Service {
         isInitialized.set(true);
     }
 
+    // A sticky restart after the process was killed continues the previous session, so the
+    // feature extractor can pick up from its persisted watermark instead of re-reading events
+    private long resumeOrStartSession() {
+        long now = System.currentTimeMillis();
+        long storedStart = preferences.getLong(KEY_SESSION_START, 0L);
+        if (storedStart > 0 && storedStart < now
+                && now - featureExtractor.getLastIngestTime(storedStart) < MAX_SESSION_RESUME_GAP) {
+            return storedStart;
+        }
+        preferences.edit().putLong(KEY_SESSION_START, now).apply();
+        return now;
+    }
+
     private String generateAnonymousUserId() {
         String existingId = preferences.getString("anonymous_user_id", null);
         if (existingId != null) return existingId;
@@ -148,6 +220,37 @@ public class UsageMonitorService extends Service {
         return newId;
     }
 
+    private void registerScreenStateReceiver() {
+        PowerManager powerManager = getSystemService(PowerManager.class);
+        ScreenStateTracker tracker = ScreenStateTracker.getInstance();
+        if (powerManager != null && !powerManager.isInteractive()) {
+            tracker.onScreenOff(System.currentTimeMillis());
+        }
+
+        screenStateReceiver = new ScreenStateReceiver(new ScreenStateReceiver.Callback() {
+            @Override
+            public void onScreenOff() {
+                // Nothing to assess with the screen off; session monitoring backs off
+                // to MAX_MONITOR_INTERVAL at its next reschedule
+                mainHandler.removeCallbacks(realTimeMonitoringRunnable);
+            }
+
+            @Override
+            public void onScreenActive(boolean unlocked) {
+                if (!isRunning.get()) return;
+                // Assess right away instead of waiting out the off-screen interval
+                mainHandler.removeCallbacks(realTimeMonitoringRunnable);
+                mainHandler.post(realTimeMonitoringRunnable);
+                if (unlocked) {
+                    mainHandler.removeCallbacks(monitoringRunnable);
+                    mainHandler.post(monitoringRunnable);
+                }
+            }
+        });
+        registerReceiver(screenStateReceiver, ScreenStateReceiver.createFilter());
+        tracker.onTrackingStarted(System.currentTimeMillis());
+    }
+
     @Override
     public int onStartCommand(Intent intent, int flags, int startId) {
         if (!isInitialized.get()) {
@@ -211,6 +314,8 @@ public class UsageMonitorService extends Service {
     // --- Modified internal monitoring ---
     private void performMonitoringInternal() {
         long now = System.currentTimeMillis();
+        updateInferenceTier();
+        rescoreHistoryIfRulesChanged();
 
         cachedSessionData = featureExtractor.extractFeaturesWithCurrentApp(
                 userId, sessionStartTime, now);
@@ -228,10 +333,73 @@ public class UsageMonitorService extends Service {
         lastFeatureExtractionTime = now;
     }
 
+    // Stored sessions keep the scores they were written with until re-scored
+    private void rescoreHistoryIfRulesChanged() {
+        long generation = RuleEngine.getInstance(this).getGeneration();
+        if (generation == rescoredRulesGeneration) return;
+        rescoredRulesGeneration = generation;
+        try {
+            HistoryRescoreWorker.enqueueIfStale(this);
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to schedule history re-score", e);
+        }
+    }
+
+    // --- Inference tier ---
+    private void updateInferenceTier() {
+        if (predictor == null) return;
+        boolean lowPower = shouldUseLowPowerTier();
+        if (lowPower == lowPowerTier) return;
+
+        if (lowPower) {
+            preferredMode = predictor.getMode();
+            predictor.setMode(AddictionPredictor.Mode.OPTIMIZED);
+        } else {
+            predictor.setMode(preferredMode != null ? preferredMode : AddictionPredictor.Mode.STANDARD);
+        }
+        lowPowerTier = lowPower;
+        // Shadow scoring is optional work; the low-power tier skips it
+        predictor.setShadowEvaluation(!lowPower);
+        Log.i(TAG, "Inference tier: " + predictor.getMode());
+        logTierAccuracy();
+    }
+
+    private boolean shouldUseLowPowerTier() {
+        if (performanceManager.shouldReduceOperations()) return true;
+
+        PowerManager powerManager = (PowerManager) getSystemService(POWER_SERVICE);
+        if (powerManager != null && powerManager.isPowerSaveMode()) return true;
+
+        BatteryManager batteryManager = (BatteryManager) getSystemService(BATTERY_SERVICE);
+        if (batteryManager == null || batteryManager.isCharging()) return false;
+        int level = batteryManager.getIntProperty(BatteryManager.BATTERY_PROPERTY_CAPACITY);
+        if (level <= 0) return false; // property unsupported
+        // Hysteresis so a battery hovering at the threshold does not flip tiers every run
+        return level <= (lowPowerTier ? LOW_BATTERY_EXIT : LOW_BATTERY_ENTER);
+    }
+
+    // What a tier switch costs, measured on the user's own recent sessions
+    private void logTierAccuracy() {
+        if (database == null) return;
+        databaseExecutor.execute(() -> {
+            try {
+                List<EnhancedSessionData> recent =
+                        database.sessionDao().getUserRecentSessions(userId, TIER_ACCURACY_SAMPLE);
+                Log.i(TAG, predictor.evaluateOptimizedAccuracy(recent).toString());
+                ShadowEvaluator shadow = predictor.getShadowEvaluator();
+                if (shadow != null) Log.i(TAG, shadow.toString());
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to evaluate inference tier accuracy", e);
+            }
+        });
+    }
+
     // --- Real-time monitoring ---
     private void performRealTimeMonitoring() {
         monitoringExecutor.submit(() -> {
             try {
+                // Folds the scrolls since the last tick and lets an episode end while none arrive
+                SpikeDetector.getInstance().advanceTo(System.currentTimeMillis());
                 EnhancedFeatureExtractor.InstantAddictionAssessment assessment =
                         featureExtractor.getInstantAssessment();
 
@@ -283,25 +451,18 @@ public class UsageMonitorService extends Service {
     }
 
     private void handleHighRiskDetection(EnhancedFeatureExtractor.InstantAddictionAssessment assessment) {
-        databaseExecutor.execute(() -> {
-            try {
-                EnhancedSessionData riskEvent = new EnhancedSessionData();
-                riskEvent.userId = userId;
-                riskEvent.appName = assessment.packageName;
-                riskEvent.sessionDuration = 0;
-                riskEvent.dopamineSpikeFlag = 1;
-                riskEvent.addictionFlag = 2; // High risk
-                riskEvent.timestamp = assessment.timestamp;
-
-                database.sessionDao().insertEnhancedSession(riskEvent);
-
-                Log.w(TAG, "High addiction risk detected: " + assessment.appName +
-                        " - " + assessment.riskReason);
-
-            } catch (Exception e) {
-                Log.e(TAG, "Failed to store high-risk event", e);
-            }
-        });
+        EnhancedSessionData riskEvent = new EnhancedSessionData();
+        riskEvent.userId = userId;
+        riskEvent.appName = assessment.packageName;
+        riskEvent.sessionDuration = 0;
+        riskEvent.dopamineSpikeFlag = 1;
+        riskEvent.addictionFlag = 2; // High risk
+        riskEvent.timestamp = assessment.timestamp;
+
+        if (sessionWriteBuffer != null) sessionWriteBuffer.add(riskEvent);
+
+        Log.w(TAG, "High addiction risk detected: " + assessment.appName +
+                " - " + assessment.riskReason);
     }
 
     public EnhancedFeatureExtractor.InstantAddictionAssessment getCurrentAssessment() {
@@ -309,7 +470,12 @@ public class UsageMonitorService extends Service {
     }
 
     private void scheduleNextRun() {
-        mainHandler.postDelayed(monitoringRunnable, currentMonitoringInterval);
+        long interval = ScreenStateTracker.getInstance().isInteractive()
+                ? currentMonitoringInterval : MAX_MONITOR_INTERVAL;
+        if (lowPowerTier) interval = Math.max(interval, LOW_POWER_MONITOR_INTERVAL);
+        // An unlock may have posted an early run; keep a single pending run
+        mainHandler.removeCallbacks(monitoringRunnable);
+        mainHandler.postDelayed(monitoringRunnable, interval);
     }
 
     private Notification createNotification(String message) {
@@ -332,17 +498,13 @@ public class UsageMonitorService extends Service {
 
     private void storeSessionForMLTraining(EnhancedSessionData sessionData,
                                            AddictionPredictor.PredictionResult prediction) {
-        databaseExecutor.execute(() -> {
-            try {
-                database.sessionDao().insertEnhancedSession(sessionData);
+        if (sessionWriteBuffer == null) return;
+        // Written with the next group commit
+        sessionWriteBuffer.add(sessionData);
 
-                Log.i(TAG, "Stored session: " + sessionData.appName +
-                        ", Duration: " + (sessionData.sessionDuration / 1000 / 60) + "min" +
-                        ", Risk: " + prediction.dopamineRisk);
-            } catch (Exception e) {
-                Log.e(TAG, "Failed to store session data", e);
-            }
-        });
+        Log.i(TAG, "Queued session: " + sessionData.appName +
+                ", Duration: " + (sessionData.sessionDuration / 1000 / 60) + "min" +
+                ", Risk: " + prediction.dopamineRisk);
     }
 
     @Override
@@ -350,16 +512,35 @@ public class UsageMonitorService extends Service {
         return null;
     }
 
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        // The process may be killed next; do not lose buffered sessions with it
+        if (sessionWriteBuffer != null) sessionWriteBuffer.flush();
+    }
+
     @Override
     public void onDestroy() {
         super.onDestroy();
         isRunning.set(false);
 
+        if (mainHandler != null) mainHandler.removeCallbacksAndMessages(null);
+        if (screenStateReceiver != null) unregisterReceiver(screenStateReceiver);
         if (currentMonitoringTask != null) {
             currentMonitoringTask.cancel(true);
         }
         if (monitoringExecutor != null) monitoringExecutor.shutdownNow();
-        if (databaseExecutor != null) databaseExecutor.shutdownNow();
+        // Queued writes, including the final flush, finish before the thread exits
+        if (sessionWriteBuffer != null) sessionWriteBuffer.flush();
+        if (databaseExecutor != null) databaseExecutor.shutdown();
+        if (featureExtractor != null) featureExtractor.close();
+        SpikeDetector.getInstance().removeListener(spikeListener);
+        // The predictor is shared; do not leave it in the low-power tier
+        if (lowPowerTier && predictor != null && preferredMode != null) predictor.setMode(preferredMode);
+        if (predictor != null) predictor.setShadowEvaluation(false);
+
+        // Clean shutdown: the next start begins a fresh session
+        if (preferences != null) preferences.edit().remove(KEY_SESSION_START).apply();
 
         Log.i(TAG, "UsageMonitorService destroyed");
     }
@@ -0,0 +1,95 @@
+// ExpiryWheel.java
+// Location: app/src/main/java/com/neuropulse/app/utils/ExpiryWheel.java
+package com.neuropulse.app.utils;
+
+import java.util.ArrayList;
+
+/**
+ * Hashed timing wheel for expiring keys. Each key sits in the slot of its deadline tick;
+ * advancing the wheel only visits the slots whose ticks have passed, so the cost of an
+ * advance is proportional to the entries due, not to everything being tracked.
+ *
+ * Deadlines are not moved when an entry is touched. Instead, when an entry comes due the
+ * handler reports the entry's current deadline and the wheel re-files it if it was
+ * extended, so hot keys cost one re-file per TTL rather than one per access.
+ */
+public class ExpiryWheel<K> {
+
+    public interface ExpiryHandler<K> {
+        /**
+         * Called when {@code key} comes due. Return a later deadline to keep the key, or a
+         * value {@code <= now} once the key has been dropped.
+         */
+        long onDue(K key, long now);
+    }
+
+    private static final class Entry<K> {
+        final K key;
+        long deadlineTick;
+
+        Entry(K key, long deadlineTick) {
+            this.key = key;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+
+    private final long tickMillis;
+    private final ArrayList<Entry<K>>[] slots;
+    private long currentTick = -1;
+    private int size = 0;
+
+    @SuppressWarnings("unchecked")
+    public ExpiryWheel(long tickMillis, int slotCount) {
+        this.tickMillis = tickMillis;
+        this.slots = new ArrayList[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            slots[i] = new ArrayList<>();
+        }
+    }
+
+    public synchronized void schedule(K key, long deadline) {
+        long tick = Math.max(deadline / tickMillis, currentTick + 1);
+        slots[(int) (tick % slots.length)].add(new Entry<>(key, tick));
+        size++;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /** Processes every entry due at or before {@code now}. */
+    public synchronized void advance(long now, ExpiryHandler<K> handler) {
+        long targetTick = now / tickMillis;
+        if (currentTick < 0) currentTick = targetTick - 1;
+        if (targetTick <= currentTick) return;
+
+        // After a long pause each slot only needs visiting once
+        long firstTick = Math.max(currentTick + 1, targetTick - slots.length + 1);
+        ArrayList<Entry<K>> refile = new ArrayList<>();
+        for (long tick = firstTick; tick <= targetTick; tick++) {
+            ArrayList<Entry<K>> slot = slots[(int) (tick % slots.length)];
+            for (int i = slot.size() - 1; i >= 0; i--) {
+                Entry<K> entry = slot.get(i);
+                if (entry.deadlineTick > targetTick) continue; // due on a later revolution
+
+                // Swap-remove keeps removal O(1)
+                slot.set(i, slot.get(slot.size() - 1));
+                slot.remove(slot.size() - 1);
+                size--;
+
+                long nextDeadline = handler.onDue(entry.key, now);
+                if (nextDeadline > now) {
+                    entry.deadlineTick = nextDeadline / tickMillis;
+                    refile.add(entry);
+                }
+            }
+        }
+        currentTick = targetTick;
+
+        for (Entry<K> entry : refile) {
+            entry.deadlineTick = Math.max(entry.deadlineTick, currentTick + 1);
+            slots[(int) (entry.deadlineTick % slots.length)].add(entry);
+            size++;
+        }
+    }
+}
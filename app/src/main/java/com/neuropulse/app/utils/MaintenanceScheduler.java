@@ -0,0 +1,116 @@
+// MaintenanceScheduler.java
+// Location: app/src/main/java/com/neuropulse/app/utils/MaintenanceScheduler.java
+package com.neuropulse.app.utils;
+
+import android.util.Log;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Process-wide scheduler for periodic housekeeping (tracker eviction, cache refreshes).
+ * One low-priority daemon thread is started with the first registration and shut down
+ * when the last registration is cancelled, so components that come and go (the debug
+ * screen, the monitoring service) never leak timer threads.
+ */
+public class MaintenanceScheduler {
+    private static final String TAG = "MaintenanceScheduler";
+    private static MaintenanceScheduler instance;
+
+    private ScheduledThreadPoolExecutor executor;
+    private int activeRegistrations = 0;
+
+    /** Handle returned by {@link #schedule}; cancelling it releases the task. */
+    public final class Registration {
+        private final ScheduledThreadPoolExecutor owner;
+        private final ScheduledFuture<?> future;
+        private boolean cancelled = false;
+
+        private Registration(ScheduledThreadPoolExecutor owner, ScheduledFuture<?> future) {
+            this.owner = owner;
+            this.future = future;
+        }
+
+        public void cancel() {
+            synchronized (MaintenanceScheduler.this) {
+                if (cancelled) return;
+                cancelled = true;
+                future.cancel(false);
+                release(owner);
+            }
+        }
+    }
+
+    private MaintenanceScheduler() { }
+
+    public static synchronized MaintenanceScheduler getInstance() {
+        if (instance == null) {
+            instance = new MaintenanceScheduler();
+        }
+        return instance;
+    }
+
+    /** Runs {@code task} at a fixed rate until the returned registration is cancelled. */
+    public synchronized Registration schedule(Runnable task, long initialDelay, long period, TimeUnit unit) {
+        ensureExecutor();
+        activeRegistrations++;
+        return new Registration(executor, executor.scheduleAtFixedRate(() -> {
+            try {
+                task.run();
+            } catch (Exception e) {
+                // A failing task must not suppress its future runs
+                Log.e(TAG, "Maintenance task failed", e);
+            }
+        }, initialDelay, period, unit));
+    }
+
+    /** Runs {@code task} once on the maintenance thread. */
+    public synchronized void execute(Runnable task) {
+        ScheduledThreadPoolExecutor owner = ensureExecutor();
+        activeRegistrations++;
+        owner.execute(() -> {
+            try {
+                task.run();
+            } catch (Exception e) {
+                Log.e(TAG, "Maintenance task failed", e);
+            } finally {
+                synchronized (MaintenanceScheduler.this) {
+                    release(owner);
+                }
+            }
+        });
+    }
+
+    /** Cancels everything and stops the thread immediately. */
+    public synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        activeRegistrations = 0;
+    }
+
+    private ScheduledThreadPoolExecutor ensureExecutor() {
+        if (executor == null) {
+            executor = new ScheduledThreadPoolExecutor(1, r -> {
+                Thread t = new Thread(r, "MaintenanceThread");
+                t.setDaemon(true);
+                t.setPriority(Thread.MIN_PRIORITY);
+                return t;
+            });
+            executor.setRemoveOnCancelPolicy(true);
+        }
+        return executor;
+    }
+
+    private void release(ScheduledThreadPoolExecutor owner) {
+        // Registrations from before a shutdown() no longer count
+        if (owner != executor) return;
+        if (--activeRegistrations == 0) {
+            executor.shutdown();
+            executor = null;
+            Log.d(TAG, "No maintenance tasks left, scheduler stopped");
+        }
+    }
+}
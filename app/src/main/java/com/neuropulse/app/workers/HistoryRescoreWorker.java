@@ -0,0 +1,218 @@
+// HistoryRescoreWorker.java
+// Location: app/src/main/java/com/neuropulse/app/workers/HistoryRescoreWorker.java
+package com.neuropulse.app.workers;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Constraints;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.neuropulse.app.database.AppDatabase;
+import com.neuropulse.app.database.DatabaseHelpers.SessionScore;
+import com.neuropulse.app.database.EnhancedSessionDao;
+import com.neuropulse.app.database.EnhancedSessionData;
+import com.neuropulse.app.ml.FeatureEncoder;
+import com.neuropulse.app.ml.RuleEngine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Re-scores every stored session's addictionFlag after the risk rules change. The flag is
+ * the rules' addiction level, as the feature extractor stores it live. History is
+ * read in keyset pages ordered by (timestamp, sessionId), so each page is an index range
+ * scan no matter how deep into the table it starts. Each page is split into
+ * {@link FeatureEncoder.Batch} slices that are encoded and scored across cores, and only
+ * the rows whose score changed are written back, one short transaction per page. WAL
+ * lets live inserts proceed between and during those transactions.
+ *
+ * The cursor is checkpointed after every page together with the fingerprint of the rules
+ * being applied, so a run killed with the process resumes where it stopped, and a rule
+ * change restarts the walk from the oldest session.
+ *
+ * dopamineSpikeFlag is not rewritten: it comes from the live event stream
+ * ({@link com.neuropulse.app.features.SpikeDetector}), which stored rows do not keep.
+ * Neither are high-risk alert rows (no duration), whose flag marks the alert.
+ */
+public class HistoryRescoreWorker extends Worker {
+    private static final String TAG = "HistoryRescoreWorker";
+    private static final String WORK_NAME = "history_rescore";
+    private static final String PREFS_NAME = "history_rescore";
+    private static final String KEY_SCORED_FINGERPRINT = "scored_fingerprint";
+    private static final String KEY_TARGET_FINGERPRINT = "target_fingerprint";
+    private static final String KEY_AFTER_TIMESTAMP = "after_timestamp";
+    private static final String KEY_AFTER_SESSION_ID = "after_session_id";
+
+    private static final int PAGE_SIZE = 4096;
+    private static final int SLICE_SIZE = 256;
+    private static final int MAX_THREADS = 4;
+    private static final int MAX_ATTEMPTS = 3;
+
+    public HistoryRescoreWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    /**
+     * Schedules a re-score if history was last scored with different rules. A pending or
+     * running job for the current rules is kept, so its checkpoint survives. The first run
+     * also moves rows stored before addictionFlag was the rule level onto it.
+     */
+    public static void enqueueIfStale(Context context) {
+        long fingerprint = RuleEngine.getInstance(context).getFingerprint();
+        if (fingerprint == 0) return; // built-in thresholds only; nothing to re-score with
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        if (prefs.getLong(KEY_SCORED_FINGERPRINT, 0) == fingerprint) return;
+
+        boolean sameTarget = prefs.getLong(KEY_TARGET_FINGERPRINT, 0) == fingerprint;
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(HistoryRescoreWorker.class)
+                .setConstraints(new Constraints.Builder().setRequiresBatteryNotLow(true).build())
+                .build();
+        WorkManager.getInstance(context).enqueueUniqueWork(WORK_NAME,
+                sameTarget ? ExistingWorkPolicy.KEEP : ExistingWorkPolicy.REPLACE, request);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Context context = getApplicationContext();
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        RuleEngine rules = RuleEngine.getInstance(context);
+        FeatureEncoder encoder = FeatureEncoder.getInstance(context);
+        EnhancedSessionDao dao = AppDatabase.getInstance(context).sessionDao();
+
+        int threads = Math.max(1, Math.min(MAX_THREADS, Runtime.getRuntime().availableProcessors()));
+        ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "HistoryRescore");
+            t.setPriority(Thread.NORM_PRIORITY - 2);
+            return t;
+        });
+        Scorer[] scorers = new Scorer[threads];
+        for (int i = 0; i < threads; i++) scorers[i] = new Scorer(encoder, rules);
+
+        long started = System.currentTimeMillis();
+        long scanned = 0;
+        long updated = 0;
+        try {
+            long fingerprint = rules.getFingerprint();
+            if (fingerprint == 0) return Result.success();
+            long afterTimestamp = Long.MIN_VALUE;
+            long afterSessionId = Long.MIN_VALUE;
+            if (prefs.getLong(KEY_TARGET_FINGERPRINT, 0) == fingerprint) {
+                afterTimestamp = prefs.getLong(KEY_AFTER_TIMESTAMP, Long.MIN_VALUE);
+                afterSessionId = prefs.getLong(KEY_AFTER_SESSION_ID, Long.MIN_VALUE);
+            } else {
+                prefs.edit().putLong(KEY_TARGET_FINGERPRINT, fingerprint)
+                        .remove(KEY_AFTER_TIMESTAMP).remove(KEY_AFTER_SESSION_ID).apply();
+            }
+
+            int[] levels = new int[PAGE_SIZE];
+            List<SessionScore> changes = new ArrayList<>();
+            while (!isStopped()) {
+                List<EnhancedSessionData> page = dao.getSessionsAfter(afterTimestamp, afterSessionId, PAGE_SIZE);
+                if (page.isEmpty()) break;
+
+                scorePage(page, levels, scorers, executor);
+                if (rules.getFingerprint() != fingerprint) {
+                    // Rules changed mid-run: this page may mix rule sets, and earlier pages are stale
+                    fingerprint = rules.getFingerprint();
+                    afterTimestamp = Long.MIN_VALUE;
+                    afterSessionId = Long.MIN_VALUE;
+                    prefs.edit().putLong(KEY_TARGET_FINGERPRINT, fingerprint)
+                            .remove(KEY_AFTER_TIMESTAMP).remove(KEY_AFTER_SESSION_ID).apply();
+                    continue;
+                }
+
+                changes.clear();
+                for (int i = 0; i < page.size(); i++) {
+                    EnhancedSessionData session = page.get(i);
+                    if (session.sessionDuration <= 0) continue; // alert row
+                    if (session.addictionFlag != levels[i]) changes.add(new SessionScore(session.sessionId, levels[i]));
+                }
+                if (!changes.isEmpty()) updated += dao.updateSessionScores(changes);
+                scanned += page.size();
+
+                EnhancedSessionData last = page.get(page.size() - 1);
+                afterTimestamp = last.timestamp;
+                afterSessionId = last.sessionId;
+                prefs.edit().putLong(KEY_AFTER_TIMESTAMP, afterTimestamp)
+                        .putLong(KEY_AFTER_SESSION_ID, afterSessionId).apply();
+                if (page.size() < PAGE_SIZE) break;
+            }
+
+            if (isStopped()) return Result.retry();
+            prefs.edit().putLong(KEY_SCORED_FINGERPRINT, fingerprint)
+                    .remove(KEY_TARGET_FINGERPRINT).remove(KEY_AFTER_TIMESTAMP).remove(KEY_AFTER_SESSION_ID)
+                    .apply();
+            Log.i(TAG, "Re-scored " + scanned + " sessions, " + updated + " changed, in "
+                    + (System.currentTimeMillis() - started) + "ms on " + threads + " threads");
+            return Result.success();
+
+        } catch (Exception e) {
+            Log.e(TAG, "History re-score failed after " + scanned + " sessions", e);
+            return getRunAttemptCount() + 1 < MAX_ATTEMPTS ? Result.retry() : Result.failure();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // Fills levels[0..page.size()) with the rules' addiction level for each session
+    private static void scorePage(List<EnhancedSessionData> page, int[] levels, Scorer[] scorers,
+                                  ExecutorService executor) throws InterruptedException, ExecutionException {
+        int slices = (page.size() + SLICE_SIZE - 1) / SLICE_SIZE;
+        int tasks = Math.min(scorers.length, slices);
+        if (tasks == 1) {
+            scorers[0].score(page, levels, 0, 1);
+            return;
+        }
+        // Task t takes slices t, t + tasks, ...; each owns its scorer's buffers
+        List<Callable<Void>> work = new ArrayList<>(tasks);
+        for (int t = 0; t < tasks; t++) {
+            Scorer scorer = scorers[t];
+            int first = t;
+            work.add(() -> {
+                scorer.score(page, levels, first, tasks);
+                return null;
+            });
+        }
+        for (Future<Void> result : executor.invokeAll(work)) {
+            result.get(); // rethrows a failed slice
+        }
+    }
+
+    // One thread's encoding and scoring buffers
+    private static final class Scorer {
+        private final FeatureEncoder encoder;
+        private final RuleEngine rules;
+        private final FeatureEncoder.Batch batch;
+        private final float[] dopamine = new float[SLICE_SIZE];
+        private final int[] level = new int[SLICE_SIZE];
+        private final int[] reason = new int[SLICE_SIZE];
+
+        Scorer(FeatureEncoder encoder, RuleEngine rules) {
+            this.encoder = encoder;
+            this.rules = rules;
+            this.batch = encoder.newBatch(SLICE_SIZE);
+        }
+
+        void score(List<EnhancedSessionData> page, int[] levels, int firstSlice, int stride) {
+            for (int from = firstSlice * SLICE_SIZE; from < page.size(); from += stride * SLICE_SIZE) {
+                // Room never returns null rows, so the batch rows line up with the slice
+                encoder.encodeBatch(page.subList(from, Math.min(page.size(), from + SLICE_SIZE)), batch);
+                rules.evaluateBatch(batch, dopamine, level, reason);
+                System.arraycopy(level, 0, levels, from, batch.size());
+            }
+        }
+    }
+}
@@ -0,0 +1,123 @@
+// RetentionWorker.java
+// Location: app/src/main/java/com/neuropulse/app/workers/RetentionWorker.java
+package com.neuropulse.app.workers;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.neuropulse.app.database.AppDatabase;
+import com.neuropulse.app.database.EnhancedSessionDao;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Enforces the 30-day retention of enhanced_session_data in the background. Expired rows
+ * are deleted oldest first in small chunks through the timestamp index, each chunk its
+ * own short transaction so live inserts are never held up for long, and the freed pages
+ * are then returned to the file system with an incremental vacuum.
+ *
+ * Runs daily when the device is idle or charging; WorkManager constraints cannot express
+ * "or", so each window has its own periodic request and whichever runs second usually
+ * finds nothing to do.
+ */
+public class RetentionWorker extends Worker {
+    private static final String TAG = "RetentionWorker";
+    private static final String WORK_IDLE = "retention_idle";
+    private static final String WORK_CHARGING = "retention_charging";
+
+    public static final long RETENTION_MS = TimeUnit.DAYS.toMillis(30);
+    private static final int DELETE_CHUNK = 500;
+    private static final int MAX_CHUNKS_PER_RUN = 200; // the rest waits for the next window
+    private static final int VACUUM_PAGES_PER_RUN = 2048;
+    private static final int AUTO_VACUUM_INCREMENTAL = 2;
+
+    public RetentionWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    /** Registers both daily windows; existing registrations are kept. */
+    public static void schedule(Context context) {
+        WorkManager workManager = WorkManager.getInstance(context);
+        workManager.enqueueUniquePeriodicWork(WORK_IDLE, ExistingPeriodicWorkPolicy.KEEP,
+                new PeriodicWorkRequest.Builder(RetentionWorker.class, 1, TimeUnit.DAYS)
+                        .setConstraints(new Constraints.Builder()
+                                .setRequiresDeviceIdle(true)
+                                .setRequiresBatteryNotLow(true)
+                                .build())
+                        .build());
+        workManager.enqueueUniquePeriodicWork(WORK_CHARGING, ExistingPeriodicWorkPolicy.KEEP,
+                new PeriodicWorkRequest.Builder(RetentionWorker.class, 1, TimeUnit.DAYS)
+                        .setConstraints(new Constraints.Builder().setRequiresCharging(true).build())
+                        .build());
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        AppDatabase database = AppDatabase.getInstance(getApplicationContext());
+        EnhancedSessionDao dao = database.sessionDao();
+        long cutoff = System.currentTimeMillis() - RETENTION_MS;
+
+        try {
+            SupportSQLiteDatabase db = database.getOpenHelper().getWritableDatabase();
+            // Before the delete, so this run's freed pages are already reclaimable
+            if (!enableIncrementalVacuum(db)) return Result.retry();
+
+            int deleted = 0;
+            for (int chunk = 0; chunk < MAX_CHUNKS_PER_RUN && !isStopped(); chunk++) {
+                int count = dao.deleteOldSessionsBatch(cutoff, DELETE_CHUNK);
+                deleted += count;
+                if (count < DELETE_CHUNK) break;
+            }
+            if (isStopped()) return Result.retry();
+
+            long freePages = pragmaLong(db, "PRAGMA freelist_count");
+            if (freePages > 0) {
+                // Each step of the pragma frees one page, so the cursor must be drained
+                try (Cursor cursor = db.query("PRAGMA incremental_vacuum(" + VACUUM_PAGES_PER_RUN + ")")) {
+                    while (cursor.moveToNext()) {
+                        // no rows; stepping does the work
+                    }
+                }
+            }
+            Log.i(TAG, "Deleted " + deleted + " expired sessions, reclaimed up to "
+                    + Math.min(freePages, VACUUM_PAGES_PER_RUN) + " of " + freePages + " free pages");
+            return Result.success();
+
+        } catch (Exception e) {
+            Log.e(TAG, "Retention run failed", e);
+            return Result.retry();
+        }
+    }
+
+    /**
+     * Switches the file to incremental auto-vacuum once. The mode only takes effect after a
+     * full VACUUM, which must run outside a transaction, so it cannot be done by a Room
+     * migration; it happens here, in a maintenance window. Returns false if stopped first.
+     */
+    private boolean enableIncrementalVacuum(SupportSQLiteDatabase db) {
+        if (pragmaLong(db, "PRAGMA auto_vacuum") == AUTO_VACUUM_INCREMENTAL) return true;
+        if (isStopped()) return false;
+        long started = System.currentTimeMillis();
+        db.execSQL("PRAGMA auto_vacuum = INCREMENTAL");
+        db.execSQL("VACUUM");
+        Log.i(TAG, "Enabled incremental auto-vacuum in " + (System.currentTimeMillis() - started) + "ms");
+        return true;
+    }
+
+    private static long pragmaLong(SupportSQLiteDatabase db, String pragma) {
+        try (Cursor cursor = db.query(pragma)) {
+            return cursor.moveToFirst() ? cursor.getLong(0) : -1;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+// NotificationEventQueueTest.java
+// Location: app/src/test/java/com/neuropulse/app/features/NotificationEventQueueTest.java
+package com.neuropulse.app.features;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class NotificationEventQueueTest {
+    private static final int CAPACITY = 1024;
+
+    private final NotificationEventQueue queue = new NotificationEventQueue();
+    private final List<long[]> drained = new ArrayList<>();
+    private final NotificationEventQueue.Consumer recorder = (type, packageId, keyHash, reason, timestamp) ->
+            drained.add(new long[]{type, packageId, keyHash, reason, timestamp});
+
+    @Test
+    public void drainsInFifoOrderWithEveryField() {
+        assertTrue(queue.offer(NotificationEventQueue.TYPE_POSTED, 3, 0xCAFE, NotificationEventQueue.NO_REASON, 100L));
+        assertTrue(queue.offer(NotificationEventQueue.TYPE_REMOVED, 4, -7, 2, 200L));
+
+        assertEquals(2, queue.drain(recorder, 10));
+        assertEquals(0, queue.drain(recorder, 10));
+        assertEquals(2, drained.size());
+        assertEventEquals(new long[]{NotificationEventQueue.TYPE_POSTED, 3, 0xCAFE, NotificationEventQueue.NO_REASON, 100L},
+                drained.get(0));
+        assertEventEquals(new long[]{NotificationEventQueue.TYPE_REMOVED, 4, -7, 2, 200L}, drained.get(1));
+    }
+
+    @Test
+    public void drainStopsAtMaxEvents() {
+        for (int i = 0; i < 5; i++) queue.offer(NotificationEventQueue.TYPE_POSTED, 1, i, 0, i);
+
+        assertEquals(3, queue.drain(recorder, 3));
+        assertEquals(2, queue.drain(recorder, 3));
+        for (int i = 0; i < 5; i++) assertEquals(i, drained.get(i)[4]);
+    }
+
+    @Test
+    public void wrapsAroundTheRing() {
+        long next = 0;
+        long expected = 0;
+        // Laps that do not divide the capacity, so the head and tail cross the end of the ring at different points
+        for (int lap = 0; lap < 7; lap++) {
+            int batch = CAPACITY * 3 / 4 + lap;
+            for (int i = 0; i < batch; i++) {
+                assertTrue(queue.offer(NotificationEventQueue.TYPE_POSTED, 1, 0, 0, next++));
+            }
+            assertEquals(batch, queue.drain(recorder, Integer.MAX_VALUE));
+            for (long[] event : drained) assertEquals(expected++, event[4]);
+            drained.clear();
+        }
+        assertEquals(0, queue.getDroppedCount());
+    }
+
+    @Test
+    public void fullQueueDropsNewEventsAndKeepsUnreadOnes() {
+        for (int i = 0; i < CAPACITY; i++) {
+            assertTrue(queue.offer(NotificationEventQueue.TYPE_POSTED, 1, 0, 0, i));
+        }
+        assertFalse(queue.offer(NotificationEventQueue.TYPE_POSTED, 1, 0, 0, -1L));
+        assertEquals(1, queue.getDroppedCount());
+
+        assertEquals(1, queue.drain(recorder, 1));
+        assertTrue(queue.offer(NotificationEventQueue.TYPE_POSTED, 1, 0, 0, CAPACITY));
+        assertEquals(CAPACITY, queue.drain(recorder, Integer.MAX_VALUE));
+        for (int i = 0; i <= CAPACITY; i++) assertEquals(i, drained.get(i)[4]);
+    }
+
+    @Test
+    public void concurrentProducersLoseNothing() throws InterruptedException {
+        int producers = 4;
+        int perProducer = 200;
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            int packageId = p;
+            threads[p] = new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    queue.offer(NotificationEventQueue.TYPE_POSTED, packageId, i, 0, i);
+                }
+            });
+            threads[p].start();
+        }
+        for (Thread thread : threads) thread.join();
+
+        assertEquals(producers * perProducer, queue.drain(recorder, Integer.MAX_VALUE));
+        long[] nextSequence = new long[producers];
+        for (long[] event : drained) {
+            int packageId = (int) event[1];
+            assertEquals("events of one producer stay in order", nextSequence[packageId]++, event[4]);
+        }
+        assertEquals(0, queue.getDroppedCount());
+    }
+
+    private static void assertEventEquals(long[] expected, long[] actual) {
+        for (int i = 0; i < expected.length; i++) assertEquals(expected[i], actual[i]);
+    }
+}
@@ -0,0 +1,140 @@
+// NotificationResponseIndexTest.java
+// Location: app/src/test/java/com/neuropulse/app/features/NotificationResponseIndexTest.java
+package com.neuropulse.app.features;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import android.service.notification.NotificationListenerService;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class NotificationResponseIndexTest {
+    private static final int APP = 5;
+    private static final int OTHER_APP = 6;
+    private static final long T0 = TimeUnit.DAYS.toMillis(20_000);
+
+    private final NotificationResponseIndex index = new NotificationResponseIndex();
+
+    @Test
+    public void openAfterPostIsAResponse() {
+        post(APP, 1, T0);
+        index.onSessionOpened(APP, T0 + 3_000);
+
+        assertOutcomes(APP, 0, 0, 1);
+        assertEquals(TimeUnit.SECONDS.toMillis(4), index.getLatencyPercentile(APP, 0.5f));
+    }
+
+    @Test
+    public void openSeenBeforeThePostIsStillJoined() {
+        // Usage events were processed before the notification queue was drained
+        index.onSessionOpened(APP, T0 + 60_000);
+        post(APP, 1, T0);
+
+        assertOutcomes(APP, 0, 0, 1);
+    }
+
+    @Test
+    public void openOfAnotherAppOrOutsideTheWindowIsNotAResponse() {
+        post(APP, 1, T0);
+        index.onSessionOpened(OTHER_APP, T0 + 1_000);
+        index.onSessionOpened(APP, T0 + NotificationResponseIndex.RESPONSE_WINDOW + 1);
+        index.advanceTo(T0 + NotificationResponseIndex.RESPONSE_WINDOW + NotificationResponseIndex.JOIN_SLACK + 1);
+
+        assertOutcomes(APP, 1, 0, 0);
+        assertOutcomes(OTHER_APP, 0, 0, 0);
+    }
+
+    @Test
+    public void clickRemovalIsAResponse() {
+        post(APP, 1, T0);
+        remove(APP, 1, NotificationListenerService.REASON_CLICK, T0 + 2_000);
+
+        assertOutcomes(APP, 0, 0, 1);
+    }
+
+    @Test
+    public void swipeIsDismissedOnceTheSlackPasses() {
+        post(APP, 1, T0);
+        remove(APP, 1, NotificationListenerService.REASON_CANCEL, T0 + 5_000);
+
+        index.advanceTo(T0 + 5_000 + NotificationResponseIndex.JOIN_SLACK);
+        assertOutcomes(APP, 0, 0, 0);
+        index.advanceTo(T0 + 5_000 + NotificationResponseIndex.JOIN_SLACK + 1);
+        assertOutcomes(APP, 0, 1, 0);
+    }
+
+    @Test
+    public void appCancelFollowedByALateOpenIsAResponse() {
+        post(APP, 1, T0);
+        remove(APP, 1, NotificationListenerService.REASON_APP_CANCEL, T0 + 5_000);
+        index.onSessionOpened(APP, T0 + 5_000 + NotificationResponseIndex.JOIN_SLACK / 2);
+        index.advanceTo(T0 + TimeUnit.HOURS.toMillis(1));
+
+        assertOutcomes(APP, 0, 0, 1);
+    }
+
+    @Test
+    public void updatesOfATrackedNotificationCountOnce() {
+        post(APP, 1, T0);
+        post(APP, 1, T0 + 1_000);
+        index.onSessionOpened(APP, T0 + 2_000);
+
+        assertOutcomes(APP, 0, 0, 1);
+    }
+
+    @Test
+    public void unansweredNotificationIsIgnoredAfterTheWindow() {
+        post(APP, 1, T0);
+        index.advanceTo(T0 + NotificationResponseIndex.RESPONSE_WINDOW + NotificationResponseIndex.JOIN_SLACK + 1);
+
+        assertOutcomes(APP, 1, 0, 0);
+        assertEquals(-1, index.getLatencyPercentile(APP, 0.5f));
+    }
+
+    @Test
+    public void dominantResponseOnlyCountsOutcomesSinceTheSnapshot() {
+        for (int key = 0; key < 3; key++) {
+            post(APP, key, T0);
+            remove(APP, key, NotificationListenerService.REASON_CANCEL, T0 + 1_000);
+        }
+        index.advanceTo(T0 + TimeUnit.MINUTES.toMillis(1));
+        int[] baseline = index.snapshotOutcomeCounts();
+
+        post(APP, 10, T0 + TimeUnit.MINUTES.toMillis(2));
+        remove(APP, 10, NotificationListenerService.REASON_CLICK, T0 + TimeUnit.MINUTES.toMillis(3));
+
+        assertEquals(NotificationResponseIndex.RESPONSE_DISMISSED, index.dominantResponseSince(APP, new int[0]));
+        assertEquals(NotificationResponseIndex.RESPONSE_ACTED, index.dominantResponseSince(APP, baseline));
+        assertEquals(NotificationResponseIndex.RESPONSE_IGNORED, index.dominantResponseSince(OTHER_APP, baseline));
+    }
+
+    @Test
+    public void latencyPercentilesUseLog2Buckets() {
+        long[] latencies = {500, 1_500, 3_000, 100_000};
+        for (int key = 0; key < latencies.length; key++) {
+            post(APP, key, T0);
+            remove(APP, key, NotificationListenerService.REASON_CLICK, T0 + latencies[key]);
+        }
+
+        assertEquals(TimeUnit.SECONDS.toMillis(1), index.getLatencyPercentile(APP, 0.25f));
+        assertEquals(TimeUnit.SECONDS.toMillis(2), index.getLatencyPercentile(APP, 0.5f));
+        assertEquals(TimeUnit.SECONDS.toMillis(4), index.getLatencyPercentile(APP, 0.75f));
+        assertEquals(TimeUnit.SECONDS.toMillis(128), index.getLatencyPercentile(APP, 1f));
+    }
+
+    private void post(int packageId, int keyHash, long time) {
+        index.onNotificationEvent(NotificationEventQueue.TYPE_POSTED, packageId, keyHash,
+                NotificationEventQueue.NO_REASON, time);
+    }
+
+    private void remove(int packageId, int keyHash, int reason, long time) {
+        index.onNotificationEvent(NotificationEventQueue.TYPE_REMOVED, packageId, keyHash, reason, time);
+    }
+
+    private void assertOutcomes(int packageId, int ignored, int dismissed, int acted) {
+        assertArrayEquals(new int[]{ignored, dismissed, acted}, index.getOutcomeCounts(packageId));
+    }
+}
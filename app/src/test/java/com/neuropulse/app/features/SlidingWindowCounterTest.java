@@ -0,0 +1,80 @@
+// SlidingWindowCounterTest.java
+// Location: app/src/test/java/com/neuropulse/app/features/SlidingWindowCounterTest.java
+package com.neuropulse.app.features;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class SlidingWindowCounterTest {
+    private static final long BUCKET = SlidingWindowCounter.BUCKET_MILLIS;
+    private static final long START = 1_000_000 * BUCKET;
+
+    private final SlidingWindowCounter counter = new SlidingWindowCounter();
+
+    @Test
+    public void eventsLeaveEachWindowAfterItsLength() {
+        counter.record(2, START);
+
+        assertEquals(1, counter.count(2, SlidingWindowCounter.WINDOW_5_MIN, START + 9 * BUCKET));
+        assertEquals(0, counter.count(2, SlidingWindowCounter.WINDOW_5_MIN, START + 10 * BUCKET));
+        assertEquals(1, counter.count(2, SlidingWindowCounter.WINDOW_30_MIN, START + 59 * BUCKET));
+        assertEquals(0, counter.count(2, SlidingWindowCounter.WINDOW_30_MIN, START + 60 * BUCKET));
+        assertEquals(1, counter.count(2, SlidingWindowCounter.WINDOW_2_HOURS, START + 239 * BUCKET));
+        assertEquals(0, counter.count(2, SlidingWindowCounter.WINDOW_2_HOURS, START + 240 * BUCKET));
+    }
+
+    @Test
+    public void lateEventsCountOnlyInWindowsStillCoveringThem() {
+        counter.record(0, START + 20 * BUCKET);
+        counter.record(0, START + 5 * BUCKET); // 15 buckets behind the newest
+
+        assertEquals(1, counter.count(0, SlidingWindowCounter.WINDOW_5_MIN, START + 20 * BUCKET));
+        assertEquals(2, counter.count(0, SlidingWindowCounter.WINDOW_30_MIN, START + 20 * BUCKET));
+    }
+
+    @Test
+    public void eventsOlderThanTheLongestWindowAreIgnored() {
+        counter.record(0, START + 300 * BUCKET);
+        counter.record(0, START);
+
+        assertEquals(1, counter.count(0, SlidingWindowCounter.WINDOW_2_HOURS, START + 300 * BUCKET));
+    }
+
+    @Test
+    public void idleGapClearsEverythingAndCountingResumes() {
+        for (int i = 0; i < 50; i++) counter.record(1, START + i * BUCKET);
+        long resumed = START + 1000 * BUCKET;
+        counter.record(1, resumed);
+
+        assertEquals(1, counter.count(1, SlidingWindowCounter.WINDOW_5_MIN, resumed));
+        assertEquals(1, counter.count(1, SlidingWindowCounter.WINDOW_2_HOURS, resumed));
+    }
+
+    @Test
+    public void ratePerMinuteDividesByTheWindowLength() {
+        for (int i = 0; i < 10; i++) counter.record(4, START + i * BUCKET);
+
+        float rate = counter.ratePerMinute(4, SlidingWindowCounter.WINDOW_5_MIN, START + 9 * BUCKET);
+        assertEquals(2f, rate, 1e-6f);
+    }
+
+    @Test
+    public void packagesAreCountedSeparately() {
+        counter.record(0, START);
+        counter.record(100, START);
+        counter.record(100, START);
+
+        assertEquals(1, counter.count(0, SlidingWindowCounter.WINDOW_5_MIN, START));
+        assertEquals(2, counter.count(100, SlidingWindowCounter.WINDOW_5_MIN, START));
+        assertEquals(0, counter.count(50, SlidingWindowCounter.WINDOW_5_MIN, START));
+        assertEquals(0, counter.count(500, SlidingWindowCounter.WINDOW_5_MIN, START));
+    }
+
+    @Test
+    public void unknownPackageIdIsIgnored() {
+        counter.record(PackageIdDictionary.UNKNOWN_ID, START);
+
+        assertEquals(0, counter.count(PackageIdDictionary.UNKNOWN_ID, SlidingWindowCounter.WINDOW_5_MIN, START));
+    }
+}
@@ -0,0 +1,141 @@
+// SpikeDetectorTest.java
+// Location: app/src/test/java/com/neuropulse/app/features/SpikeDetectorTest.java
+package com.neuropulse.app.features;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+public class SpikeDetectorTest {
+    private static final String FEED_APP = "com.example.feed";
+    private static final long TICK = TimeUnit.SECONDS.toMillis(5);
+    private static final long T0 = 100_000 * SpikeDetector.BIN;
+
+    private final ScrollCounter scrolls = ScrollCounter.getInstance();
+    private final List<SpikeDetector.SpikeEpisode> ended = new ArrayList<>();
+    private final List<Integer> startedChannels = new ArrayList<>();
+    private SpikeDetector detector;
+    private boolean listenerHeldLock;
+    private long now;
+    private Random noise;
+
+    private final SpikeDetector.SpikeListener listener = new SpikeDetector.SpikeListener() {
+        @Override
+        public void onSpikeStart(String packageName, int channel, float magnitude, long startTime) {
+            listenerHeldLock |= Thread.holdsLock(detector);
+            startedChannels.add(channel);
+            assertEquals(FEED_APP, packageName);
+            assertTrue(magnitude > 1f);
+        }
+
+        @Override
+        public void onSpikeEnd(SpikeDetector.SpikeEpisode episode) {
+            listenerHeldLock |= Thread.holdsLock(detector);
+            ended.add(episode);
+        }
+    };
+
+    @Before
+    public void setUp() {
+        // Only scrolls recorded after the cursor is created reach this detector
+        detector = new SpikeDetector(scrolls.newCursor());
+        detector.addListener(listener);
+        detector.onSessionOpened(PackageIdDictionary.getInstance().idOf(FEED_APP), T0);
+        now = T0;
+        noise = new Random(42);
+    }
+
+    @After
+    public void tearDown() {
+        detector.removeListener(listener);
+    }
+
+    @Test
+    public void steadyUseNeverSpikes() {
+        scroll(TimeUnit.MINUTES.toMillis(30), 1.0, TICK);
+
+        assertTrue(startedChannels.isEmpty());
+        assertFalse(detector.isInSpike());
+    }
+
+    @Test
+    public void slowTicksSpreadScrollsAcrossBins() {
+        // 15 s ticks against 10 s bins: dumping each tick into one bin would alternate full and empty bins
+        scroll(TimeUnit.MINUTES.toMillis(30), 1.0, TimeUnit.SECONDS.toMillis(15));
+
+        assertTrue(startedChannels.isEmpty());
+    }
+
+    @Test
+    public void burstStartsAndEndsAnEpisode() {
+        scroll(TimeUnit.MINUTES.toMillis(10), 1.0, TICK);
+        long burstStart = now;
+        scroll(TimeUnit.MINUTES.toMillis(2), 4.0, TICK);
+        assertTrue(detector.isInSpike());
+        assertEquals(1, startedChannels.size());
+        assertEquals(SpikeDetector.CHANNEL_INTERACTION, (int) startedChannels.get(0));
+
+        scroll(TimeUnit.MINUTES.toMillis(2), 1.0, TICK);
+        assertFalse(detector.isInSpike());
+        assertEquals(1, ended.size());
+        SpikeDetector.SpikeEpisode episode = ended.get(0);
+        assertEquals(FEED_APP, episode.packageName);
+        assertTrue(episode.startTime >= burstStart - SpikeDetector.BIN);
+        assertTrue(episode.getDuration() >= TimeUnit.MINUTES.toMillis(1));
+        assertTrue(episode.peakMagnitude > 1f);
+        assertTrue(detector.hasSpikeSince(burstStart));
+        assertFalse(detector.hasSpikeSince(now));
+    }
+
+    @Test
+    public void noAlertsDuringWarmup() {
+        scroll(TimeUnit.MINUTES.toMillis(2), 1.0, TICK);
+        scroll(TimeUnit.MINUTES.toMillis(1), 8.0, TICK);
+
+        assertTrue(startedChannels.isEmpty());
+    }
+
+    @Test
+    public void idleGapEndsAnEpisode() {
+        scroll(TimeUnit.MINUTES.toMillis(10), 1.0, TICK);
+        scroll(TimeUnit.MINUTES.toMillis(1), 6.0, TICK);
+        assertTrue(detector.isInSpike());
+
+        now += TimeUnit.MINUTES.toMillis(30);
+        detector.advanceTo(now);
+        assertFalse(detector.isInSpike());
+        assertEquals(1, ended.size());
+    }
+
+    @Test
+    public void listenersRunOutsideTheDetectorLock() {
+        scroll(TimeUnit.MINUTES.toMillis(10), 1.0, TICK);
+        scroll(TimeUnit.MINUTES.toMillis(1), 6.0, TICK);
+        scroll(TimeUnit.MINUTES.toMillis(2), 1.0, TICK);
+
+        assertEquals(1, startedChannels.size());
+        assertEquals(1, ended.size());
+        assertFalse(listenerHeldLock);
+    }
+
+    // Records about ratePerSecond scrolls per second for duration, folding them in every tick
+    private void scroll(long duration, double ratePerSecond, long tick) {
+        long end = now + duration;
+        while (now < end) {
+            double expected = ratePerSecond * tick / 1000.0;
+            long count = Math.max(0, Math.round(expected + noise.nextGaussian() * Math.sqrt(expected) * 0.5));
+            for (long i = 0; i < count; i++) scrolls.record(FEED_APP);
+            now += tick;
+            detector.advanceTo(now);
+        }
+    }
+}
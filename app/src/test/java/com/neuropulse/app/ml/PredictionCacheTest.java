@@ -0,0 +1,224 @@
+// PredictionCacheTest.java
+// Location: app/src/test/java/com/neuropulse/app/ml/PredictionCacheTest.java
+package com.neuropulse.app.ml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.json.JSONException;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Random;
+
+public class PredictionCacheTest {
+    private static final int KEY_BITS = 58;
+    private static final int[] NO_EXTRA_FEATURES = new int[0];
+    private static final float[] NO_EXTRA_CUTS = new float[0];
+
+    private final FeatureEncoder encoder = new FeatureEncoder(null);
+    private String bundledRules;
+    private RuleEngine engine;
+    private RuleEngine.KeyScheme scheme;
+
+    @Before
+    public void setUp() throws IOException, JSONException {
+        // Unit tests run from the module directory
+        bundledRules = new String(Files.readAllBytes(Paths.get("src/main/assets/risk_rules.json")),
+                StandardCharsets.UTF_8);
+        engine = new RuleEngine(encoder, bundledRules);
+        scheme = engine.newKeyScheme(NO_EXTRA_FEATURES, NO_EXTRA_CUTS, KEY_BITS);
+    }
+
+    // ---------------- Cache ----------------
+
+    @Test
+    public void returnsWhatWasStoredUnderTheKey() {
+        PredictionCache cache = new PredictionCache(16);
+        AddictionPredictor.PredictionResult result = result(0.5f);
+        cache.put(42L, result);
+
+        assertSame(result, cache.get(42L));
+        assertNull(cache.get(43L));
+    }
+
+    @Test
+    public void replacingAnotherKeyCountsAnEviction() {
+        PredictionCache cache = new PredictionCache(1);
+        cache.put(1L, result(0.1f));
+        cache.put(1L, result(0.2f));
+        assertEquals(0, cache.evictionCount());
+
+        AddictionPredictor.PredictionResult second = result(0.3f);
+        cache.put(2L, second);
+        assertEquals(1, cache.evictionCount());
+        assertNull(cache.get(1L));
+        assertSame(second, cache.get(2L));
+    }
+
+    @Test
+    public void clearDropsEntriesAndEvictionCount() {
+        PredictionCache cache = new PredictionCache(1);
+        cache.put(1L, result(0.1f));
+        cache.put(2L, result(0.2f));
+        cache.clear();
+
+        assertNull(cache.get(2L));
+        assertEquals(0, cache.evictionCount());
+    }
+
+    // ---------------- Key ----------------
+
+    @Test
+    public void valuesOnEitherSideOfAThresholdGetDifferentKeys() {
+        float[] base = session();
+        base[FeatureEncoder.APP_CATEGORY] = 0f;
+        base[FeatureEncoder.DURATION_HOURS] = 2.5f;
+        assertKeysSeparate(base, FeatureEncoder.CONSECUTIVE_SAME_APP, 120f, 125f);
+        assertKeysSeparate(session(), FeatureEncoder.DURATION_HOURS, 0.5f, 1801 / 3600f); // 30:00 and 30:01
+        assertKeysSeparate(session(), FeatureEncoder.SCROLLS_PER_MINUTE, 15.0f, 15.9f);
+        assertKeysSeparate(session(), FeatureEncoder.TIME_OF_DAY, 22.0f / 24f, 22.4f / 24f);
+        assertKeysSeparate(session(), FeatureEncoder.DURATION_Z, 2.0f, 2.4f);
+    }
+
+    @Test
+    public void valueOnAThresholdIsItsOwnInterval() {
+        float[] below = session();
+        float[] on = session();
+        float[] above = session();
+        below[FeatureEncoder.SCROLLS_PER_MINUTE] = 14.9f;
+        on[FeatureEncoder.SCROLLS_PER_MINUTE] = 15f;
+        above[FeatureEncoder.SCROLLS_PER_MINUTE] = 15.1f;
+
+        assertNotEquals(scheme.keyOf(below, 0), scheme.keyOf(on, 0));
+        assertNotEquals(scheme.keyOf(on, 0), scheme.keyOf(above, 0));
+        assertNotEquals(scheme.keyOf(below, 0), scheme.keyOf(above, 0));
+    }
+
+    @Test
+    public void valuesInsideOneIntervalShareAKey() {
+        float[] a = session();
+        float[] b = session();
+        a[FeatureEncoder.SCROLLS_PER_MINUTE] = 15.5f;
+        b[FeatureEncoder.SCROLLS_PER_MINUTE] = 19.5f;
+        a[FeatureEncoder.DURATION_HOURS] = 1.2f;
+        b[FeatureEncoder.DURATION_HOURS] = 1.8f;
+        a[FeatureEncoder.UNLOCK_COUNT] = 3f; // read by no rule
+        b[FeatureEncoder.UNLOCK_COUNT] = 30f;
+
+        assertEquals(scheme.keyOf(a, 0), scheme.keyOf(b, 0));
+    }
+
+    @Test
+    public void sessionsSharingAKeyScoreTheSame() {
+        float[] hours = {0f, 0.5f, 0.75f, 1f, 1.5f, 2f, 3f, 3.5f, 4f, 5f};
+        float[] scrolls = {0f, 5f, 7f, 10f, 12f, 15f, 15.9f, 20f, 25f};
+        float[] consecutive = {0f, 30f, 60f, 90f, 120f, 125f, 200f};
+        float[] z = {-1f, 0f, 2f, 2.4f, 3f};
+        Random random = new Random(11);
+        HashMap<Long, String> scoreByKey = new HashMap<>();
+        RuleEngine.Evaluation evaluation = new RuleEngine.Evaluation();
+
+        for (int i = 0; i < 50_000; i++) {
+            float[] features = session();
+            features[FeatureEncoder.DURATION_HOURS] = hours[random.nextInt(hours.length)];
+            features[FeatureEncoder.APP_CATEGORY] = random.nextInt(10);
+            features[FeatureEncoder.SCROLLS_PER_MINUTE] = scrolls[random.nextInt(scrolls.length)];
+            features[FeatureEncoder.TIME_OF_DAY] = random.nextInt(48) / 48f;
+            features[FeatureEncoder.BINGE_FLAG] = random.nextInt(2);
+            features[FeatureEncoder.CONSECUTIVE_SAME_APP] = consecutive[random.nextInt(consecutive.length)];
+            features[FeatureEncoder.DURATION_Z] = z[random.nextInt(z.length)];
+            features[FeatureEncoder.UNLOCK_RATE_Z] = z[random.nextInt(z.length)];
+            features[FeatureEncoder.INTENSITY_Z] = z[random.nextInt(z.length)];
+
+            scheme.evaluate(features, 0, evaluation);
+            String score = evaluation.dopamineRisk + "/" + evaluation.addictionLevel + "/" + evaluation.reason;
+            String previous = scoreByKey.putIfAbsent(scheme.keyOf(features, 0), score);
+            if (previous != null) assertEquals(previous, score);
+        }
+        assertTrue(scoreByKey.size() > 100);
+    }
+
+    @Test
+    public void extraCutsAreKeyed() {
+        RuleEngine.KeyScheme withCut = engine.newKeyScheme(
+                new int[]{FeatureEncoder.SCROLLS_PER_MINUTE}, new float[]{12f}, KEY_BITS);
+        float[] a = session();
+        float[] b = session();
+        a[FeatureEncoder.SCROLLS_PER_MINUTE] = 11f;
+        b[FeatureEncoder.SCROLLS_PER_MINUTE] = 13f;
+
+        assertEquals(scheme.keyOf(a, 0), scheme.keyOf(b, 0));
+        assertNotEquals(withCut.keyOf(a, 0), withCut.keyOf(b, 0));
+    }
+
+    @Test
+    public void nonFiniteValuesAreNotKeyed() {
+        float[] features = session();
+        features[FeatureEncoder.DURATION_Z] = Float.NaN;
+        assertEquals(RuleEngine.KeyScheme.NO_KEY, scheme.keyOf(features, 0));
+        features[FeatureEncoder.DURATION_Z] = Float.POSITIVE_INFINITY;
+        assertEquals(RuleEngine.KeyScheme.NO_KEY, scheme.keyOf(features, 0));
+    }
+
+    @Test
+    public void rulesTooFineForTheKeyAreNotCached() {
+        RuleEngine.KeyScheme narrow = engine.newKeyScheme(NO_EXTRA_FEATURES, NO_EXTRA_CUTS, 8);
+
+        assertEquals(RuleEngine.KeyScheme.NO_KEY, narrow.keyOf(session(), 0));
+    }
+
+    @Test
+    public void newRulesGetANewSchemeAndOldSchemesKeepTheirRules() throws JSONException {
+        float[] a = session();
+        float[] b = session();
+        a[FeatureEncoder.SCROLLS_PER_MINUTE] = 11f;
+        b[FeatureEncoder.SCROLLS_PER_MINUTE] = 13f;
+        RuleEngine.Evaluation before = new RuleEngine.Evaluation();
+        scheme.evaluate(b, 0, before);
+
+        engine = new RuleEngine(encoder, bundledRules.replace("\"above\": 10,", "\"above\": 12,"));
+        RuleEngine.KeyScheme retuned = engine.newKeyScheme(NO_EXTRA_FEATURES, NO_EXTRA_CUTS, KEY_BITS);
+        assertNotEquals(retuned.keyOf(a, 0), retuned.keyOf(b, 0));
+
+        RuleEngine.Evaluation after = new RuleEngine.Evaluation();
+        scheme.evaluate(b, 0, after);
+        assertEquals(before.dopamineRisk, after.dopamineRisk, 0f);
+    }
+
+    private void assertKeysSeparate(float[] base, int feature, float first, float second) {
+        float[] a = base.clone();
+        float[] b = base.clone();
+        a[feature] = first;
+        b[feature] = second;
+        RuleEngine.Evaluation scoreA = new RuleEngine.Evaluation();
+        RuleEngine.Evaluation scoreB = new RuleEngine.Evaluation();
+        scheme.evaluate(a, 0, scoreA);
+        scheme.evaluate(b, 0, scoreB);
+
+        String label = FeatureEncoder.FEATURE_NAMES[feature] + " " + first + " vs " + second;
+        assertTrue(label + " should score differently", scoreA.dopamineRisk != scoreB.dopamineRisk
+                || scoreA.addictionLevel != scoreB.addictionLevel || scoreA.reason != scoreB.reason);
+        assertNotEquals(label, scheme.keyOf(a, 0), scheme.keyOf(b, 0));
+    }
+
+    // A quiet midday session in a category no rule names; the test encoder does not rescale
+    private static float[] session() {
+        float[] features = new float[FeatureEncoder.FEATURE_COUNT];
+        features[FeatureEncoder.TIME_OF_DAY] = 0.5f;
+        features[FeatureEncoder.APP_CATEGORY] = 9f;
+        return features;
+    }
+
+    private static AddictionPredictor.PredictionResult result(float risk) {
+        return new AddictionPredictor.PredictionResult(risk, 0, null, null, 0.8f, "test");
+    }
+}
@@ -0,0 +1,181 @@
+// RuleEngineTest.java
+// Location: app/src/test/java/com/neuropulse/app/ml/RuleEngineTest.java
+package com.neuropulse.app.ml;
+
+import static org.junit.Assert.assertEquals;
+
+import org.json.JSONException;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class RuleEngineTest {
+    private static final String RULES = "{"
+            + "\"riskLevelThresholds\": [0.4, 0.7],"
+            + "\"addictionLevelThresholds\": [1, 3],"
+            + "\"defaultReason\": \"default\","
+            + "\"dopamineRules\": ["
+            + "  {\"group\": \"duration\", \"feature\": \"duration_hours\", \"above\": 3, \"weight\": 0.3},"
+            + "  {\"group\": \"duration\", \"feature\": \"duration_hours\", \"above\": 1, \"weight\": 0.2},"
+            + "  {\"group\": \"night\", \"feature\": \"hour_of_day\", \"above\": 22, \"weight\": 0.2},"
+            + "  {\"group\": \"night\", \"feature\": \"hour_of_day\", \"below\": 6, \"weight\": 0.15},"
+            + "  {\"group\": \"social\", \"feature\": \"app_category\", \"equals\": 0, \"weight\": 0.4}"
+            + "],"
+            + "\"addictionRules\": ["
+            + "  {\"group\": \"duration\", \"feature\": \"duration_hours\", \"above\": 2, \"weight\": 2},"
+            + "  {\"group\": \"binge\", \"feature\": \"binge_flag\", \"equals\": 1, \"weight\": 2},"
+            + "  {\"group\": \"scrolling\", \"feature\": \"scrolls_per_minute\", \"above\": 10, \"below\": 20, \"weight\": 1}"
+            + "],"
+            + "\"reasonRules\": ["
+            + "  {\"feature\": \"binge_flag\", \"equals\": 1, \"reason\": \"binge\"},"
+            + "  {\"feature\": \"duration_hours\", \"above\": 3, \"reason\": \"long\"}"
+            + "]}";
+
+    private final FeatureEncoder encoder = new FeatureEncoder(null);
+    private RuleEngine engine;
+
+    @Before
+    public void setUp() throws JSONException {
+        engine = new RuleEngine(encoder, RULES);
+    }
+
+    @Test
+    public void onlyTheFirstMatchingRuleOfAGroupCounts() {
+        assertEquals(0.3f, evaluate(durationHours(4f)).dopamineRisk, 1e-6f);
+        assertEquals(0.2f, evaluate(durationHours(2f)).dopamineRisk, 1e-6f);
+        assertEquals(0f, evaluate(durationHours(0.5f)).dopamineRisk, 0f);
+    }
+
+    @Test
+    public void sameGroupNameInAnotherScoreIsAnotherGroup() {
+        RuleEngine.Evaluation evaluation = evaluate(durationHours(4f));
+
+        assertEquals(0.3f, evaluation.dopamineRisk, 1e-6f);
+        assertEquals(1, evaluation.addictionLevel); // addiction:duration alone scores 2
+    }
+
+    @Test
+    public void boundsAreStrict() {
+        assertEquals(0.2f, evaluate(durationHours(3f)).dopamineRisk, 1e-6f);
+
+        float[] features = vector();
+        features[FeatureEncoder.SCROLLS_PER_MINUTE] = 10f;
+        assertEquals(0, evaluate(features).addictionLevel);
+        features[FeatureEncoder.SCROLLS_PER_MINUTE] = 10.5f;
+        assertEquals(1, evaluate(features).addictionLevel);
+        features[FeatureEncoder.SCROLLS_PER_MINUTE] = 19.5f;
+        assertEquals(1, evaluate(features).addictionLevel);
+        features[FeatureEncoder.SCROLLS_PER_MINUTE] = 20f;
+        assertEquals(0, evaluate(features).addictionLevel);
+    }
+
+    @Test
+    public void hourRulesAreWrittenInHours() {
+        assertEquals(0.2f, evaluate(hourOfDay(23f)).dopamineRisk, 1e-6f);
+        assertEquals(0.15f, evaluate(hourOfDay(5f)).dopamineRisk, 1e-6f);
+        assertEquals(0f, evaluate(hourOfDay(22f)).dopamineRisk, 0f);
+        assertEquals(0f, evaluate(hourOfDay(12f)).dopamineRisk, 0f);
+    }
+
+    @Test
+    public void equalsMatchesOneCategory() {
+        float[] features = vector();
+        features[FeatureEncoder.APP_CATEGORY] = 0f;
+        assertEquals(0.4f, evaluate(features).dopamineRisk, 1e-6f);
+        features[FeatureEncoder.APP_CATEGORY] = 1f;
+        assertEquals(0f, evaluate(features).dopamineRisk, 0f);
+    }
+
+    @Test
+    public void firstMatchingReasonWins() {
+        float[] features = durationHours(4f);
+        assertEquals("long", engine.getReason(evaluate(features).reason));
+        features[FeatureEncoder.BINGE_FLAG] = 1f;
+        assertEquals("binge", engine.getReason(evaluate(features).reason));
+        assertEquals("default", engine.getReason(evaluate(vector()).reason));
+        assertEquals("default", engine.getReason(99));
+    }
+
+    @Test
+    public void riskTiersComeFromTheRuleFile() {
+        assertEquals("LOW", engine.getRiskLevel(0.39f));
+        assertEquals("MEDIUM", engine.getRiskLevel(0.4f));
+        assertEquals("HIGH", engine.getRiskLevel(0.7f));
+        assertEquals(RuleEngine.LEVEL_MEDIUM, engine.getRiskTier(0.69f));
+    }
+
+    @Test
+    public void anotherEngineDoesNotChangeTheSharedTiers() throws JSONException {
+        RuleEngine retuned = new RuleEngine(encoder, RULES.replace("[0.4, 0.7]", "[0.2, 0.5]"));
+
+        assertEquals("MEDIUM", retuned.getRiskLevel(0.3f));
+        assertEquals("LOW", engine.getRiskLevel(0.3f));
+        assertEquals("LOW", RuleEngine.riskLevel(0.3f)); // no shared engine: built-in thresholds
+    }
+
+    @Test
+    public void batchMatchesSingleEvaluation() {
+        int rows = 300;
+        FeatureEncoder.Batch batch = encoder.newBatch(rows);
+        Random random = new Random(7);
+        for (int r = 0; r < rows; r++) {
+            batch.values[FeatureEncoder.DURATION_HOURS * batch.capacity + r] = random.nextInt(20) * 0.25f;
+            batch.values[FeatureEncoder.TIME_OF_DAY * batch.capacity + r] = random.nextInt(24) / 24f;
+            batch.values[FeatureEncoder.APP_CATEGORY * batch.capacity + r] = random.nextInt(4);
+            batch.values[FeatureEncoder.BINGE_FLAG * batch.capacity + r] = random.nextInt(2);
+            batch.values[FeatureEncoder.SCROLLS_PER_MINUTE * batch.capacity + r] = random.nextInt(30);
+        }
+        batch.size = rows;
+
+        float[] dopamine = new float[rows];
+        int[] level = new int[rows];
+        int[] reason = new int[rows];
+        engine.evaluateBatch(batch, dopamine, level, reason);
+
+        float[] row = vector();
+        for (int r = 0; r < rows; r++) {
+            batch.copyRow(r, row, 0);
+            RuleEngine.Evaluation single = evaluate(row);
+            assertEquals(single.dopamineRisk, dopamine[r], 0f);
+            assertEquals(single.addictionLevel, level[r]);
+            assertEquals(single.reason, reason[r]);
+        }
+    }
+
+    @Test(expected = JSONException.class)
+    public void unknownFeatureIsRejected() throws JSONException {
+        new RuleEngine(encoder, RULES.replace("\"binge_flag\"", "\"bingeing\""));
+    }
+
+    @Test(expected = JSONException.class)
+    public void descendingLevelThresholdsAreRejected() throws JSONException {
+        new RuleEngine(encoder, RULES.replace("[1, 3]", "[3, 1]"));
+    }
+
+    private RuleEngine.Evaluation evaluate(float[] features) {
+        RuleEngine.Evaluation out = new RuleEngine.Evaluation();
+        engine.evaluate(features, 0, out);
+        return out;
+    }
+
+    // Noon, no category rule, nothing else set; the test encoder does not rescale
+    private static float[] vector() {
+        float[] features = new float[FeatureEncoder.FEATURE_COUNT];
+        features[FeatureEncoder.TIME_OF_DAY] = 0.5f;
+        features[FeatureEncoder.APP_CATEGORY] = 9f;
+        return features;
+    }
+
+    private static float[] durationHours(float hours) {
+        float[] features = vector();
+        features[FeatureEncoder.DURATION_HOURS] = hours;
+        return features;
+    }
+
+    private static float[] hourOfDay(float hour) {
+        float[] features = vector();
+        features[FeatureEncoder.TIME_OF_DAY] = hour / 24f;
+        return features;
+    }
+}
@@ -0,0 +1,98 @@
+// ExpiryWheelTest.java
+// Location: app/src/test/java/com/neuropulse/app/utils/ExpiryWheelTest.java
+package com.neuropulse.app.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ExpiryWheelTest {
+    private static final long TICK = 1000L;
+    private static final int SLOTS = 8;
+
+    private final ExpiryWheel<String> wheel = new ExpiryWheel<>(TICK, SLOTS);
+    private final List<String> expired = new ArrayList<>();
+    private final ExpiryWheel.ExpiryHandler<String> expire = (key, now) -> {
+        expired.add(key);
+        return 0L;
+    };
+
+    @Before
+    public void startClock() {
+        wheel.advance(0L, expire);
+    }
+
+    @Test
+    public void entriesComeDueAtTheirDeadlineTick() {
+        wheel.schedule("a", 5000L);
+        wheel.schedule("b", 3500L);
+
+        wheel.advance(2999L, expire);
+        assertTrue(expired.isEmpty());
+        wheel.advance(3000L, expire);
+        assertEquals(Arrays.asList("b"), expired);
+        wheel.advance(5000L, expire);
+        assertEquals(Arrays.asList("b", "a"), expired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void deadlinesBeyondOneRevolutionWaitForTheirLap() {
+        wheel.schedule("far", 20_000L); // same slot as tick 4 and tick 12
+
+        wheel.advance(4000L, expire);
+        wheel.advance(12_000L, expire);
+        assertTrue(expired.isEmpty());
+        wheel.advance(20_000L, expire);
+        assertEquals(Arrays.asList("far"), expired);
+    }
+
+    @Test
+    public void extendedEntriesAreRefiled() {
+        wheel.schedule("hot", 3000L);
+        long[] lastTouch = {9000L}; // touched after scheduling, then idle
+        int[] visits = {0};
+        ExpiryWheel.ExpiryHandler<String> extendOnce = (key, now) -> {
+            visits[0]++;
+            long deadline = lastTouch[0];
+            lastTouch[0] = 0L;
+            return deadline;
+        };
+
+        wheel.advance(3000L, extendOnce);
+        assertEquals(1, visits[0]);
+        assertEquals(1, wheel.size());
+
+        wheel.advance(8999L, extendOnce);
+        assertEquals(1, visits[0]);
+        wheel.advance(9000L, extendOnce);
+        assertEquals(2, visits[0]);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void longPauseVisitsEachEntryOnce() {
+        for (int i = 1; i <= 20; i++) wheel.schedule("k" + i, i * TICK);
+
+        wheel.advance(1_000_000L, expire);
+        assertEquals(20, expired.size());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void pastDeadlinesComeDueOnTheNextTick() {
+        wheel.advance(5000L, expire);
+        wheel.schedule("late", 1000L);
+
+        wheel.advance(5999L, expire);
+        assertTrue(expired.isEmpty());
+        wheel.advance(6000L, expire);
+        assertEquals(Arrays.asList("late"), expired);
+    }
+}